@@ -0,0 +1,42 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Perft;
+
+/**
+ * The positions benchmarks are run against, covering each phase of a game and, for the
+ * rules queries, a team in check and a team checkmated
+ */
+public enum BenchmarkPosition {
+    OPENING(Perft.START_POSITION),
+    MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"),
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"),
+    /**
+     * Black is in check from the bishop and has several ways out
+     */
+    CHECK("rnbqkbnr/ppp2ppp/8/1B1pp3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 1 3"),
+    /**
+     * White is checkmated (fool's mate)
+     */
+    CHECKMATE("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+
+    private final String fen;
+
+    BenchmarkPosition(String fen) {
+        this.fen = fen;
+    }
+
+    /**
+     * @return the FEN of this position
+     */
+    public String fen() {
+        return fen;
+    }
+
+    /**
+     * @return a new game set up in this position
+     */
+    public ChessGame load() {
+        return ChessGame.fromFen(fen);
+    }
+}
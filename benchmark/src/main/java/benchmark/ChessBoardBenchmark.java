@@ -0,0 +1,48 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks copying, comparing, and hashing a chess board
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public BenchmarkPosition position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private ChessBoard equalBoard;
+
+    @Setup
+    public void setup() {
+        game = position.load();
+        board = game.getBoard();
+        equalBoard = position.load().getBoard();
+    }
+
+    @Benchmark
+    public ChessBoard copyBoard() {
+        return game.copyBoard(board);
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return board.equals(equalBoard);
+    }
+
+    @Benchmark
+    public int hashCode() {
+        return board.hashCode();
+    }
+}
@@ -0,0 +1,129 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rules queries the server runs on every move
+ * <p>
+ * A game caches its legal moves until its position changes, so the queries that use them
+ * are measured twice: on a fresh game, the cost the server pays for a position it has
+ * just loaded, and on the same game again, the cost of asking a second time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME", "CHECK", "CHECKMATE"})
+    public BenchmarkPosition position;
+
+    private ChessGame game;
+    private ChessPosition[] teamPositions;
+    private ChessMove move;
+
+    @Setup
+    public void setup() {
+        game = position.load();
+        ArrayList<ChessPosition> positions = new ArrayList<>();
+        for (int row = 1; row < 9; ++row) {
+            for (int col = 1; col < 9; ++col) {
+                ChessPosition square = new ChessPosition(row, col);
+                if (game.getBoard().getPiece(square) != null
+                        && game.getBoard().getPiece(square).getTeamColor() == game.getTeamTurn()) {
+                    positions.add(square);
+                }
+            }
+        }
+        teamPositions = positions.toArray(new ChessPosition[0]);
+        // A checkmated team has no move to make
+        move = game.evaluateStatus().legalMoves().stream().findFirst().orElse(null);
+    }
+
+    /**
+     * A freshly loaded copy of the benchmark game for every invocation, so nothing the game
+     * caches about its position carries over from one invocation to the next
+     */
+    @State(Scope.Thread)
+    public static class FreshGame {
+        private ChessGame game;
+
+        @Setup(Level.Invocation)
+        public void setup(ChessGameBenchmark benchmark) {
+            game = benchmark.position.load();
+        }
+    }
+
+    /**
+     * Gets the valid moves of every piece of the team to move, one square at a time, in a
+     * position whose legal moves have not been generated yet
+     */
+    @Benchmark
+    public void validMoves(FreshGame fresh, Blackhole blackhole) {
+        for (ChessPosition teamPosition : teamPositions) {
+            blackhole.consume(fresh.game.validMoves(teamPosition));
+        }
+    }
+
+    /**
+     * Gets the valid moves of every piece of the team to move in a position whose legal
+     * moves are already cached
+     */
+    @Benchmark
+    public void validMovesCached(Blackhole blackhole) {
+        for (ChessPosition teamPosition : teamPositions) {
+            blackhole.consume(game.validMoves(teamPosition));
+        }
+    }
+
+    /**
+     * Makes a move on a fresh copy of the game, so this includes the cost of copying the board
+     * In a checkmate there is no move to make, so only the copy is measured
+     */
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        ChessGame copy = new ChessGame();
+        copy.setBoard(new ChessBoard(game.getBoard()));
+        copy.setTeamTurn(game.getTeamTurn());
+        if (move != null) {
+            copy.makeMove(move);
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate(FreshGame fresh) {
+        return fresh.game.isInCheckmate(fresh.game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmateCached() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate(FreshGame fresh) {
+        return fresh.game.isInStalemate(fresh.game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemateCached() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+}
@@ -59,6 +59,8 @@ public class ChessClient implements ServerMessageObserver {
                     case "leave" -> leaveGame(params);
                     case "move" -> makeMove(params);
                     case "resign" -> resign(params);
+                    case "draw" -> claimDraw(params);
+                    case "bot" -> addBot(params);
                     case "highlight" -> highlight(params);
                     case "help" -> help(params);
                     default -> throw new Exception("Invalid input. Enter 'help' for options.");
@@ -238,6 +240,34 @@ public class ChessClient implements ServerMessageObserver {
         throw new Exception("Invalid Command. No parameters required.");
     }
 
+    public String addBot(String... params) throws Exception {
+        if (params.length == 0) {
+            if (teamColor == null) {
+                throw new Exception("Error: An observer cannot add the engine to a game.");
+            }
+            if (currentGame.game().gameOver) {
+                throw new Exception("Error: The game is already over.");
+            }
+            ws.addBot(authToken, currentGame.gameID());
+            return "";
+        }
+        throw new Exception("Invalid Command. No parameters required.");
+    }
+
+    public String claimDraw(String... params) throws Exception {
+        if (params.length == 0) {
+            if (teamColor == null) {
+                throw new Exception("Error: An observer cannot claim a draw.");
+            }
+            if (currentGame.game().gameOver) {
+                throw new Exception("Error: The game is already over.");
+            }
+            ws.claimDraw(authToken, currentGame.gameID());
+            return "";
+        }
+        throw new Exception("Invalid Command. No parameters required.");
+    }
+
     public String makeMove(String... params) throws Exception {
         if (teamColor == null) {
             throw new Exception("Error: An observer cannot make a move.");
@@ -448,6 +478,8 @@ public class ChessClient implements ServerMessageObserver {
                         - highlight <SPACE>
                         - leave
                         - resign
+                        - draw
+                        - bot
                         - help
                         """;
             }
@@ -2,6 +2,7 @@ package server;
 
 import com.google.gson.Gson;
 import dataaccess.*;
+import server.engine.EnginePool;
 import server.websocket.WebSocketHandler;
 import service.*;
 import model.*;
@@ -14,6 +15,8 @@ public class Server {
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
+    private final EnginePool enginePool = new EnginePool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 64, 64);
     private final WebSocketHandler webSocketHandler;
 
     {
@@ -21,7 +24,7 @@ public class Server {
             userDAO = new MySqlUserDAO();
             authDAO = new MySqlAuthDAO();
             gameDAO = new MySqlGameDAO();
-            webSocketHandler = new WebSocketHandler(gameDAO, authDAO);
+            webSocketHandler = new WebSocketHandler(gameDAO, authDAO, enginePool);
         } catch (DataAccessException e) {
             throw new RuntimeException(e);
         }
@@ -54,6 +57,7 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        enginePool.close();
     }
 
     private String register(Request req, Response res) throws Exception {
@@ -0,0 +1,134 @@
+package server.engine;
+
+import chess.ChessGame;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A search waiting for or running on an engine worker
+ * <p>
+ * Jobs are ordered by priority, then by when they were submitted. The result completes
+ * on the worker thread when the search finishes, so callbacks attached to it must not
+ * block for long.
+ */
+public class EngineJob implements Comparable<EngineJob> {
+
+    /**
+     * The kinds of work the engine does, most urgent first
+     */
+    public enum Priority {
+        /**
+         * A move a bot opponent is waiting to play
+         */
+        BOT_MOVE,
+        /**
+         * Analysis of a position for players or observers
+         */
+        ANALYSIS
+    }
+
+    private final long sequence;
+    private final int gameID;
+    private final Priority priority;
+    private final ChessGame game;
+    private final SearchLimits limits;
+    private final CompletableFuture<SearchResult> result = new CompletableFuture<>();
+    /**
+     * The search running this job, or null when it is not running
+     */
+    private volatile Search search;
+
+    EngineJob(long sequence, int gameID, Priority priority, ChessGame game, SearchLimits limits) {
+        this.sequence = sequence;
+        this.gameID = gameID;
+        this.priority = priority;
+        this.game = game;
+        this.limits = limits;
+    }
+
+    public int gameID() {
+        return gameID;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    public Priority priority() {
+        return priority;
+    }
+
+    ChessGame game() {
+        return game;
+    }
+
+    SearchLimits limits() {
+        return limits;
+    }
+
+    /**
+     * @return the result of the search, which is cancelled if the job is, and completes
+     * exceptionally if the search fails
+     */
+    public CompletableFuture<SearchResult> result() {
+        return result;
+    }
+
+    /**
+     * Cancels the job. A queued job never runs, and a running job's search is stopped
+     *
+     * @return if the job had not already finished
+     */
+    public boolean cancel() {
+        boolean cancelled = result.cancel(false);
+        Search running = search;
+        if (running != null) {
+            synchronized (running) {
+                // The worker reuses its search, so only stop it while it is still running this job
+                if (search == running) {
+                    running.stop();
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    /**
+     * Runs the job's search on the calling worker thread
+     *
+     * @param search the worker's search, which runs one job at a time
+     */
+    void run(Search search) {
+        synchronized (search) {
+            this.search = search;
+        }
+        try {
+            // A job cancelled before its search was recorded never starts, and one cancelled
+            // after stops the search, which holds the stop until it has run
+            if (!result.isCancelled()) {
+                result.complete(search.search(game, limits));
+            }
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        } finally {
+            synchronized (search) {
+                this.search = null;
+                // A cancel that arrived after the search finished must not stop the worker's next job
+                search.clearStop();
+            }
+        }
+    }
+
+    @Override
+    public int compareTo(EngineJob other) {
+        int byPriority = priority.compareTo(other.priority);
+        return (byPriority != 0) ? byPriority : Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,164 @@
+package server.engine;
+
+import chess.ChessGame;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A fixed set of engine worker threads that run searches off the WebSocket threads
+ * <p>
+ * Jobs wait in a bounded queue ordered by priority, so bot moves run before background
+ * analysis, and each job carries its own time and node limits. Each worker keeps one
+ * search for its lifetime, and every search shares one transposition table, which is
+ * safe without locking. Results come back through each
+ * job's future, completed on the worker thread.
+ */
+public class EnginePool implements AutoCloseable {
+
+    private final PriorityBlockingQueue<EngineJob> queue = new PriorityBlockingQueue<>();
+    private final Set<EngineJob> running = ConcurrentHashMap.newKeySet();
+    /**
+     * For each game, the sequence number of the first job submitted after the game's jobs
+     * were last cancelled, for catching jobs cancelled while a worker was taking them
+     */
+    private final Map<Integer, Long> cancelledBefore = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final TranspositionTable table;
+    private final List<Thread> workers = new ArrayList<>();
+    private long submitted = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a pool and starts its workers
+     *
+     * @param workerCount the number of searches that can run at once
+     * @param capacity the most jobs that can wait to run
+     * @param tableMegabytes the size of the shared transposition table
+     */
+    public EnginePool(int workerCount, int capacity, int tableMegabytes) {
+        if (workerCount < 1 || capacity < 1) {
+            throw new IllegalArgumentException("An engine pool needs at least 1 worker and room for 1 job");
+        }
+        this.capacity = capacity;
+        this.table = new TranspositionTable(tableMegabytes);
+        for (int i = 0; i < workerCount; ++i) {
+            Thread worker = new Thread(this::work, "engine-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a search of a game's current position
+     *
+     * @param gameID the game the search is for
+     * @param game the game to search, which must not be changed afterward
+     * @param priority how urgent the search is
+     * @param limits when to stop searching
+     * @return the queued job
+     * @throws RejectedExecutionException if the queue is full or the pool is closed
+     */
+    public synchronized EngineJob submit(int gameID, ChessGame game, EngineJob.Priority priority, SearchLimits limits) {
+        if (closed) {
+            throw new RejectedExecutionException("The engine pool is closed");
+        }
+        if (queue.size() >= capacity) {
+            throw new RejectedExecutionException("The engine queue is full");
+        }
+        EngineJob job = new EngineJob(submitted++, gameID, priority, game, limits);
+        queue.add(job);
+        return job;
+    }
+
+    /**
+     * Cancels every queued and running job for a game, such as when its position changes
+     *
+     * @param gameID the game whose jobs to cancel
+     * @return the number of jobs cancelled
+     */
+    public int cancelGame(int gameID) {
+        synchronized (this) {
+            cancelledBefore.put(gameID, submitted);
+        }
+        int cancelled = 0;
+        for (EngineJob job : queue) {
+            if (job.gameID() == gameID && queue.remove(job) && job.cancel()) {
+                ++cancelled;
+            }
+        }
+        for (EngineJob job : running) {
+            if (job.gameID() == gameID && job.cancel()) {
+                ++cancelled;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * @return the number of jobs waiting to run
+     */
+    public int queuedJobs() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of jobs running
+     */
+    public int runningJobs() {
+        return running.size();
+    }
+
+    private void work() {
+        Search search = new Search(table);
+        while (!closed) {
+            EngineJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job.isCancelled()) {
+                continue;
+            }
+            running.add(job);
+            // Between take and add the job was in neither collection for cancelGame to find
+            if (job.sequence() < cancelledBefore.getOrDefault(job.gameID(), 0L)) {
+                job.cancel();
+            }
+            try {
+                job.run(search);
+            } finally {
+                running.remove(job);
+            }
+        }
+    }
+
+    /**
+     * Cancels every job and stops the workers
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        for (EngineJob job = queue.poll(); job != null; job = queue.poll()) {
+            job.cancel();
+        }
+        for (EngineJob job : running) {
+            job.cancel();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
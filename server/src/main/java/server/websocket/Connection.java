@@ -13,7 +13,10 @@ public class Connection {
         this.session = session;
     }
 
-    public void send(String msg) throws IOException {
+    /**
+     * Sends a message, one at a time, since engine results arrive on their own threads
+     */
+    public synchronized void send(String msg) throws IOException {
         session.getRemote().sendString(msg);
     }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package server.websocket;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameStatus;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
 import com.google.gson.Gson;
 import dataaccess.GameDAO;
 import dataaccess.AuthDAO;
@@ -8,10 +12,16 @@ import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import server.engine.EngineJob;
+import server.engine.EnginePool;
 import websocket.messages.*;
 import websocket.commands.*;
 
+import java.io.IOException;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebSocket
 public class WebSocketHandler {
@@ -20,10 +30,31 @@ public class WebSocketHandler {
     private final Gson gson = new Gson();
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
+    private final EnginePool engine;
+    /**
+     * One lock per game, held while a game is changed, so moves in a game never interleave
+     * while different games proceed in parallel
+     */
+    private final Map<Integer, Object> gameLocks = new ConcurrentHashMap<>();
 
-    public WebSocketHandler(GameDAO gameDAO, AuthDAO authDAO) {
+    /**
+     * The name shown in a seat the engine plays
+     */
+    public static final String BOT_USERNAME = "[engine]";
+    private static final SearchLimits BOT_LIMITS = SearchLimits.time(1000);
+    private static final SearchLimits ANALYSIS_LIMITS = SearchLimits.time(2000);
+
+    public WebSocketHandler(GameDAO gameDAO, AuthDAO authDAO, EnginePool engine) {
         this.authDAO = authDAO;
         this.gameDAO = gameDAO;
+        this.engine = engine;
+    }
+
+    /**
+     * @return the lock to hold while changing a game
+     */
+    private Object gameLock(int gameID) {
+        return gameLocks.computeIfAbsent(gameID, id -> new Object());
     }
 
     @OnWebSocketMessage
@@ -36,6 +67,9 @@ public class WebSocketHandler {
             case MAKE_MOVE -> move(moveCommand, session);
             case LEAVE -> leave(command);
             case RESIGN -> resign(command);
+            case CLAIM_DRAW -> claimDraw(command);
+            case ADD_BOT -> addBot(command);
+            case ANALYZE -> analyze(command);
         }
     }
 
@@ -74,83 +108,107 @@ public class WebSocketHandler {
     }
 
     private void move(MakeMoveCommand command, Session session) throws Exception {
-        String authToken = command.getAuthToken();
-        int gameID = command.getGameID();
-        GameData game = gameDAO.getGame(gameID);
+        synchronized (gameLock(command.getGameID())) {
+            String authToken = command.getAuthToken();
+            int gameID = command.getGameID();
+            GameData game = gameDAO.getGame(gameID);
 
-        if (authDAO.getAuth(authToken) == null) {
-            ErrorMessage error = new ErrorMessage("Error: Unauthorized");
-            connections.addConnection(gameID, authToken, session);
-            connections.sendToSelf(gameID, authToken, error);
-            return;
-        }
-        String username = authDAO.getAuth(authToken).username();
-        if (game.game().gameOver) {
-            ErrorMessage error = new ErrorMessage("Error: The game is over. No more moves can be made.");
-            connections.sendToSelf(gameID, authToken, error);
-            return;
-        }
-        if (!Objects.equals(username, game.blackUsername()) && !Objects.equals(username, game.whiteUsername())) {
-            ErrorMessage error = new ErrorMessage("Error: An observer cannot make a move.");
-            connections.sendToSelf(gameID, authToken, error);
-            return;
-        }
-        if ((Objects.equals(username, game.blackUsername()) &&
-                (game.game().getBoard().getPiece(command.getMove().getStartPosition()).getTeamColor() == ChessGame.TeamColor.WHITE)) ||
-                (Objects.equals(username, game.whiteUsername()) &&
-                        (game.game().getBoard().getPiece(command.getMove().getStartPosition()).getTeamColor() == ChessGame.TeamColor.BLACK))) {
-            ErrorMessage error = new ErrorMessage("Error: You cannot move your opponent's piece.");
-            connections.sendToSelf(gameID, authToken, error);
-            return;
-        }
+            if (authDAO.getAuth(authToken) == null) {
+                ErrorMessage error = new ErrorMessage("Error: Unauthorized");
+                connections.addConnection(gameID, authToken, session);
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            String username = authDAO.getAuth(authToken).username();
+            if (game.game().gameOver) {
+                ErrorMessage error = new ErrorMessage("Error: The game is over. No more moves can be made.");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            if (!Objects.equals(username, game.blackUsername()) && !Objects.equals(username, game.whiteUsername())) {
+                ErrorMessage error = new ErrorMessage("Error: An observer cannot make a move.");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            if ((Objects.equals(username, game.blackUsername()) &&
+                    (game.game().getBoard().getPiece(command.getMove().getStartPosition()).getTeamColor() == ChessGame.TeamColor.WHITE)) ||
+                    (Objects.equals(username, game.whiteUsername()) &&
+                            (game.game().getBoard().getPiece(command.getMove().getStartPosition()).getTeamColor() == ChessGame.TeamColor.BLACK))) {
+                ErrorMessage error = new ErrorMessage("Error: You cannot move your opponent's piece.");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
 
-        try {
-            game.game().makeMove(command.getMove());
-        } catch (Exception ex) {
-            ErrorMessage error = new ErrorMessage(ex.getMessage());
-            connections.sendToSelf(gameID, authToken, error);
-            return;
+            try {
+                game.game().makeMove(command.getMove());
+            } catch (Exception ex) {
+                ErrorMessage error = new ErrorMessage(ex.getMessage());
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            finishMove(game, username, authToken, command.getMove());
         }
+    }
+
+    /**
+     * Saves a move that has just been made, tells everyone in the game about it and what
+     * it led to, and asks the engine for a reply if the engine plays the team to move
+     *
+     * @param username who made the move
+     * @param authToken the mover's auth token, or null if the engine moved
+     */
+    private void finishMove(GameData game, String username, String authToken, ChessMove move) throws Exception {
+        int gameID = game.gameID();
+        // Any search still running is of the previous position
+        engine.cancelGame(gameID);
 
         String gameUpdate = null;
         String selfUpdate = null;
-        if (game.game().isInCheck(ChessGame.TeamColor.BLACK)) {
-            selfUpdate = gameUpdate = String.format("%s is in check.", game.blackUsername());
-        } else if (game.game().isInCheck(ChessGame.TeamColor.WHITE)) {
-            selfUpdate = gameUpdate = String.format("%s is in check.", game.whiteUsername());
+        GameStatus status = game.game().evaluateStatus();
+        String toMoveUsername;
+        String otherUsername;
+        if (status.teamTurn() == ChessGame.TeamColor.WHITE) {
+            toMoveUsername = game.whiteUsername();
+            otherUsername = game.blackUsername();
+        } else {
+            toMoveUsername = game.blackUsername();
+            otherUsername = game.whiteUsername();
         }
 
-        if (game.game().isInCheckmate(ChessGame.TeamColor.BLACK)) {
-            if (Objects.equals(username, game.blackUsername())) {
-                selfUpdate = String.format("You are in checkmate. %s wins!", game.whiteUsername());
-            } else {
-                selfUpdate = String.format("%s is in checkmate. You win!", game.blackUsername());
-            }
-            gameUpdate = String.format("%s is in checkmate. %s wins!", game.blackUsername(), game.whiteUsername());
-            game.game().gameOver = true;
-        } else if (game.game().isInCheckmate(ChessGame.TeamColor.WHITE)) {
-            if (Objects.equals(username, game.whiteUsername())) {
-                selfUpdate = String.format("You are in checkmate. %s wins!", game.blackUsername());
+        if (status.inCheckmate()) {
+            if (Objects.equals(username, toMoveUsername)) {
+                selfUpdate = String.format("You are in checkmate. %s wins!", otherUsername);
             } else {
-                selfUpdate = String.format("%s is in checkmate. You win!", game.whiteUsername());
+                selfUpdate = String.format("%s is in checkmate. You win!", toMoveUsername);
             }
-            gameUpdate = String.format("%s is in checkmate. %s wins!", game.whiteUsername(), game.blackUsername());
-            game.game().gameOver = true;
+            gameUpdate = String.format("%s is in checkmate. %s wins!", toMoveUsername, otherUsername);
+        } else if (status.inStalemate()) {
+            selfUpdate = gameUpdate = String.format("%s is in stalemate. It's a draw.", toMoveUsername);
+        } else if (status.fivefoldRepetition()) {
+            selfUpdate = gameUpdate = "The same position has occurred five times. It's a draw.";
+        } else if (status.seventyFiveMoveRule()) {
+            selfUpdate = gameUpdate = "Seventy-five moves have passed without a capture or pawn move. It's a draw.";
+        } else if (status.inCheck()) {
+            selfUpdate = gameUpdate = String.format("%s is in check.", toMoveUsername);
         }
-
-        if (game.game().isInStalemate(ChessGame.TeamColor.BLACK)) {
-            selfUpdate = gameUpdate = String.format("%s is in stalemate. It's a draw.", game.blackUsername());
-            game.game().gameOver = true;
-        } else if (game.game().isInStalemate(ChessGame.TeamColor.WHITE)) {
-            selfUpdate = gameUpdate = String.format("%s is in stalemate. It's a draw.", game.whiteUsername());
+        if (status.canClaimDraw()) {
+            String claim = status.threefoldRepetition()
+                    ? "The same position has occurred three times. Either player may claim a draw."
+                    : "Fifty moves have passed without a capture or pawn move. Either player may claim a draw.";
+            gameUpdate = (gameUpdate == null) ? claim : gameUpdate + " " + claim;
+            selfUpdate = (selfUpdate == null) ? claim : selfUpdate + " " + claim;
+        }
+        if (status.isGameOver()) {
             game.game().gameOver = true;
         }
 
         gameDAO.updateGame(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), game.game()));
 
-        LoadGameMessage gameMessage = new LoadGameMessage(game.game(), command.getMove());
+        LoadGameMessage gameMessage = new LoadGameMessage(game.game(), move);
         connections.broadcast(gameID, authToken, gameMessage);
-        connections.sendToSelf(gameID, authToken, gameMessage);
+        if (authToken != null) {
+            connections.sendToSelf(gameID, authToken, gameMessage);
+        }
 
         String message = String.format("%s has made a move.", username);
         NotificationMessage notification = new NotificationMessage(message);
@@ -160,7 +218,13 @@ public class WebSocketHandler {
             NotificationMessage gameNotify = new NotificationMessage(gameUpdate);
             NotificationMessage selfNotify = new NotificationMessage(selfUpdate);
             connections.broadcast(gameID, authToken, gameNotify);
-            connections.sendToSelf(gameID, authToken, selfNotify);
+            if (authToken != null) {
+                connections.sendToSelf(gameID, authToken, selfNotify);
+            }
+        }
+
+        if (!game.game().gameOver && botToMove(game)) {
+            requestBotMove(game);
         }
     }
 
@@ -184,30 +248,239 @@ public class WebSocketHandler {
     }
 
     private void resign(UserGameCommand command) throws Exception {
-        String username = authDAO.getAuth(command.getAuthToken()).username();
-        GameData oldGame = gameDAO.getGame(command.getGameID());
-        ChessGame game = oldGame.game();
+        synchronized (gameLock(command.getGameID())) {
+            String username = authDAO.getAuth(command.getAuthToken()).username();
+            GameData oldGame = gameDAO.getGame(command.getGameID());
+            ChessGame game = oldGame.game();
+
+            if (game.gameOver) {
+                ErrorMessage error = new ErrorMessage("Error: The game is already over.");
+                connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+                return;
+            }
+            if (!Objects.equals(username, oldGame.blackUsername()) && !Objects.equals(username, oldGame.whiteUsername())) {
+                ErrorMessage error = new ErrorMessage("Error: An observer cannot resign.");
+                connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+                return;
+            }
+
+            game.gameOver = true;
+            engine.cancelGame(oldGame.gameID());
+            GameData newGame = new GameData(oldGame.gameID(), oldGame.whiteUsername(), oldGame.blackUsername(), oldGame.gameName(), game);
+            gameDAO.updateGame(newGame);
+
+            String message = String.format("%s has forfeited %s.", username, oldGame.gameName());
+            String selfMessage = String.format("You have forfeited %s.", oldGame.gameName());
+            NotificationMessage notification = new NotificationMessage(message);
+            NotificationMessage selfNotification = new NotificationMessage(selfMessage);
+            connections.broadcast(oldGame.gameID(), command.getAuthToken(), notification);
+            connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), selfNotification);
+        }
+    }
+
+    private void claimDraw(UserGameCommand command) throws Exception {
+        synchronized (gameLock(command.getGameID())) {
+            String username = authDAO.getAuth(command.getAuthToken()).username();
+            GameData oldGame = gameDAO.getGame(command.getGameID());
+            ChessGame game = oldGame.game();
+
+            if (game.gameOver) {
+                ErrorMessage error = new ErrorMessage("Error: The game is already over.");
+                connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+                return;
+            }
+            if (!Objects.equals(username, oldGame.blackUsername()) && !Objects.equals(username, oldGame.whiteUsername())) {
+                ErrorMessage error = new ErrorMessage("Error: An observer cannot claim a draw.");
+                connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+                return;
+            }
+            if (!game.evaluateStatus().canClaimDraw()) {
+                ErrorMessage error = new ErrorMessage(
+                        "Error: A draw can only be claimed after threefold repetition or fifty moves without a capture or pawn move.");
+                connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+                return;
+            }
+
+            game.gameOver = true;
+            engine.cancelGame(oldGame.gameID());
+            GameData newGame = new GameData(oldGame.gameID(), oldGame.whiteUsername(), oldGame.blackUsername(), oldGame.gameName(), game);
+            gameDAO.updateGame(newGame);
 
-        if (game.gameOver) {
-            ErrorMessage error = new ErrorMessage("Error: The game is already over.");
-            connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+            String message = String.format("%s has claimed a draw in %s.", username, oldGame.gameName());
+            String selfMessage = String.format("You have claimed a draw in %s.", oldGame.gameName());
+            NotificationMessage notification = new NotificationMessage(message);
+            NotificationMessage selfNotification = new NotificationMessage(selfMessage);
+            connections.broadcast(oldGame.gameID(), command.getAuthToken(), notification);
+            connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), selfNotification);
+        }
+    }
+
+    private void analyze(UserGameCommand command) throws Exception {
+        String authToken = command.getAuthToken();
+        int gameID = command.getGameID();
+        GameData game = gameDAO.getGame(gameID);
+
+        if (authDAO.getAuth(authToken) == null) {
+            ErrorMessage error = new ErrorMessage("Error: Unauthorized");
+            connections.sendToSelf(gameID, authToken, error);
+            return;
+        }
+        if (game == null) {
+            ErrorMessage error = new ErrorMessage("Error: Invalid game ID");
+            connections.sendToSelf(gameID, authToken, error);
             return;
         }
-        if (!Objects.equals(username, oldGame.blackUsername()) && !Objects.equals(username, oldGame.whiteUsername())) {
-            ErrorMessage error = new ErrorMessage("Error: An observer cannot resign.");
-            connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), error);
+        String username = authDAO.getAuth(authToken).username();
+        boolean player = Objects.equals(username, game.whiteUsername()) || Objects.equals(username, game.blackUsername());
+        if (player && !game.game().gameOver) {
+            ErrorMessage error = new ErrorMessage("Error: Players can only analyze a game once it is over.");
+            connections.sendToSelf(gameID, authToken, error);
             return;
         }
 
-        game.gameOver = true;
-        GameData newGame = new GameData(oldGame.gameID(), oldGame.whiteUsername(), oldGame.blackUsername(), oldGame.gameName(), game);
-        gameDAO.updateGame(newGame);
+        // The game was freshly loaded, so later moves cannot change the position under the engine
+        ChessGame position = game.game();
+        EngineJob job;
+        try {
+            job = engine.submit(gameID, position, EngineJob.Priority.ANALYSIS, ANALYSIS_LIMITS);
+        } catch (RejectedExecutionException ex) {
+            ErrorMessage error = new ErrorMessage("Error: The engine is busy. Try again later.");
+            connections.sendToSelf(gameID, authToken, error);
+            return;
+        }
 
-        String message = String.format("%s has forfeited %s.", username, oldGame.gameName());
-        String selfMessage = String.format("You have forfeited %s.", oldGame.gameName());
-        NotificationMessage notification = new NotificationMessage(message);
-        NotificationMessage selfNotification = new NotificationMessage(selfMessage);
-        connections.broadcast(oldGame.gameID(), command.getAuthToken(), notification);
-        connections.sendToSelf(oldGame.gameID(), command.getAuthToken(), selfNotification);
+        job.result().thenAccept(result ->
+                sendFromEngine(gameID, authToken, new NotificationMessage(describe(position, result))));
+    }
+
+    private void addBot(UserGameCommand command) throws Exception {
+        synchronized (gameLock(command.getGameID())) {
+            String authToken = command.getAuthToken();
+            int gameID = command.getGameID();
+            GameData game = gameDAO.getGame(gameID);
+
+            if (authDAO.getAuth(authToken) == null) {
+                ErrorMessage error = new ErrorMessage("Error: Unauthorized");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            if (game == null) {
+                ErrorMessage error = new ErrorMessage("Error: Invalid game ID");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            String username = authDAO.getAuth(authToken).username();
+            if (game.game().gameOver) {
+                ErrorMessage error = new ErrorMessage("Error: The game is already over.");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            boolean white = Objects.equals(username, game.whiteUsername());
+            if (!white && !Objects.equals(username, game.blackUsername())) {
+                ErrorMessage error = new ErrorMessage("Error: An observer cannot add the engine to a game.");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+            if ((white ? game.blackUsername() : game.whiteUsername()) != null) {
+                ErrorMessage error = new ErrorMessage("Error: Your opponent's seat is already taken.");
+                connections.sendToSelf(gameID, authToken, error);
+                return;
+            }
+
+            GameData newGame = white
+                    ? new GameData(game.gameID(), username, BOT_USERNAME, game.gameName(), game.game())
+                    : new GameData(game.gameID(), BOT_USERNAME, username, game.gameName(), game.game());
+            gameDAO.updateGame(newGame);
+
+            String message = String.format("%s has added the engine to %s as %s.", username, game.gameName(),
+                    white ? "black" : "white");
+            connections.broadcast(gameID, null, new NotificationMessage(message));
+            if (botToMove(newGame)) {
+                requestBotMove(newGame);
+            }
+        }
+    }
+
+    /**
+     * @return if the engine holds the seat of the team whose turn it is
+     */
+    private static boolean botToMove(GameData game) {
+        String toMove = (game.game().getTeamTurn() == ChessGame.TeamColor.WHITE)
+                ? game.whiteUsername() : game.blackUsername();
+        return BOT_USERNAME.equals(toMove);
+    }
+
+    /**
+     * Queues a search for the engine's next move, which is played when the search finishes
+     */
+    private void requestBotMove(GameData game) {
+        int gameID = game.gameID();
+        long position = game.game().zobristKey();
+        EngineJob job;
+        try {
+            job = engine.submit(gameID, game.game(), EngineJob.Priority.BOT_MOVE, BOT_LIMITS);
+        } catch (RejectedExecutionException ex) {
+            sendFromEngine(gameID, null, new ErrorMessage("Error: The engine is busy and could not move."));
+            return;
+        }
+        job.result().thenAccept(result -> playBotMove(gameID, position, result));
+    }
+
+    /**
+     * Plays the engine's move on an engine worker thread, unless the game has moved on
+     * while the engine was searching. Like the other handlers that change a game, this
+     * holds the game's lock, so the engine's moves never interleave with a player's
+     *
+     * @param position the Zobrist key of the position the engine searched
+     */
+    private void playBotMove(int gameID, long position, SearchResult result) {
+        synchronized (gameLock(gameID)) {
+            try {
+                GameData game = gameDAO.getGame(gameID);
+                if (game == null || game.game().gameOver || game.game().zobristKey() != position
+                        || !botToMove(game) || result.bestMove() == null) {
+                    return;
+                }
+                game.game().makeMove(result.bestMove());
+                finishMove(game, BOT_USERNAME, null, result.bestMove());
+            } catch (Exception ex) {
+                sendFromEngine(gameID, null, new ErrorMessage("Error: The engine could not make its move."));
+            }
+        }
+    }
+
+    /**
+     * Sends a message from an engine worker thread, where there is no caller to report a
+     * failed send to
+     *
+     * @param authToken who to send the message to, or null for everyone in the game
+     */
+    private void sendFromEngine(int gameID, String authToken, ServerMessage message) {
+        try {
+            if (authToken == null) {
+                connections.broadcast(gameID, null, message);
+            } else {
+                connections.sendToSelf(gameID, authToken, message);
+            }
+        } catch (IOException ex) {
+            // The recipient has gone away, so there is nobody left to tell
+        }
+    }
+
+    private static String describe(ChessGame position, SearchResult result) {
+        String team = (position.getTeamTurn() == ChessGame.TeamColor.WHITE) ? "White" : "Black";
+        if (result.bestMove() == null) {
+            return String.format("Engine analysis: %s has no legal moves.", team);
+        }
+        String evaluation;
+        if (result.isMate()) {
+            evaluation = (result.mateInMoves() > 0)
+                    ? String.format("%s mates in %d", team, result.mateInMoves())
+                    : String.format("%s is mated in %d", team, -result.mateInMoves());
+        } else {
+            evaluation = String.format("%+.2f for %s", result.score() / 100.0, team);
+        }
+        return String.format("Engine analysis: %s's best move is %s (%s, depth %d).", team, result.bestMove(),
+                evaluation, result.depth());
     }
-}
\ No newline at end of file
+}
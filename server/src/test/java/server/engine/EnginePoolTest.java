@@ -0,0 +1,118 @@
+package server.engine;
+
+import chess.ChessGame;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class EnginePoolTest {
+
+    private static final SearchLimits LONG_SEARCH = SearchLimits.time(60_000);
+
+    @Test
+    public void findsMove() throws Exception {
+        try (EnginePool pool = new EnginePool(2, 4, 1)) {
+            ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            EngineJob job = pool.submit(1, game, EngineJob.Priority.BOT_MOVE, SearchLimits.depth(3));
+            SearchResult result = job.result().get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(1, result.mateInMoves());
+        }
+    }
+
+    @Test
+    public void respectsLimits() throws Exception {
+        try (EnginePool pool = new EnginePool(1, 4, 1)) {
+            EngineJob job = pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, SearchLimits.nodes(2000));
+            SearchResult result = job.result().get(10, TimeUnit.SECONDS);
+            Assertions.assertTrue(result.nodes() <= 2000);
+
+            job = pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, SearchLimits.time(100));
+            result = job.result().get(10, TimeUnit.SECONDS);
+            Assertions.assertTrue(result.millis() < 5000);
+        }
+    }
+
+    @Test
+    public void botMovesRunBeforeAnalysis() throws Exception {
+        try (EnginePool pool = new EnginePool(1, 8, 1)) {
+            EngineJob blocker = pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, LONG_SEARCH);
+            waitUntilRunning(pool);
+
+            List<EngineJob> finished = new ArrayList<>();
+            EngineJob analysis = pool.submit(2, new ChessGame(), EngineJob.Priority.ANALYSIS, SearchLimits.depth(1));
+            EngineJob botMove = pool.submit(3, new ChessGame(), EngineJob.Priority.BOT_MOVE, SearchLimits.depth(1));
+            analysis.result().thenRun(() -> record(finished, analysis));
+            botMove.result().thenRun(() -> record(finished, botMove));
+
+            blocker.cancel();
+            analysis.result().get(10, TimeUnit.SECONDS);
+            botMove.result().get(10, TimeUnit.SECONDS);
+            synchronized (finished) {
+                Assertions.assertEquals(List.of(botMove, analysis), finished);
+            }
+        }
+    }
+
+    @Test
+    public void cancelsQueuedAndRunningJobs() throws Exception {
+        try (EnginePool pool = new EnginePool(1, 8, 1)) {
+            EngineJob runningJob = pool.submit(7, new ChessGame(), EngineJob.Priority.ANALYSIS, LONG_SEARCH);
+            waitUntilRunning(pool);
+            EngineJob queuedJob = pool.submit(7, new ChessGame(), EngineJob.Priority.ANALYSIS, LONG_SEARCH);
+            EngineJob otherGame = pool.submit(8, new ChessGame(), EngineJob.Priority.ANALYSIS, SearchLimits.depth(2));
+
+            Assertions.assertEquals(2, pool.cancelGame(7));
+            Assertions.assertThrows(CancellationException.class, () -> runningJob.result().get());
+            Assertions.assertThrows(CancellationException.class, () -> queuedJob.result().get());
+            // The stopped search frees the worker for the next game
+            Assertions.assertNotNull(otherGame.result().get(10, TimeUnit.SECONDS).bestMove());
+        }
+    }
+
+    @Test
+    public void lateCancelLeavesNextJobRunning() throws Exception {
+        try (EnginePool pool = new EnginePool(1, 4, 1)) {
+            EngineJob first = pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, SearchLimits.depth(1));
+            first.result().get(10, TimeUnit.SECONDS);
+            // The worker's search is reused, so cancelling the finished job must not stop the next one
+            Assertions.assertFalse(first.cancel());
+            EngineJob second = pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, SearchLimits.depth(3));
+            Assertions.assertEquals(3, second.result().get(10, TimeUnit.SECONDS).depth());
+        }
+    }
+
+    @Test
+    public void rejectsWhenFull() throws Exception {
+        EnginePool pool = new EnginePool(1, 1, 1);
+        pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, LONG_SEARCH);
+        waitUntilRunning(pool);
+        EngineJob queued = pool.submit(1, new ChessGame(), EngineJob.Priority.ANALYSIS, LONG_SEARCH);
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> pool.submit(2, new ChessGame(), EngineJob.Priority.BOT_MOVE, LONG_SEARCH));
+
+        pool.close();
+        Assertions.assertTrue(queued.isCancelled());
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> pool.submit(2, new ChessGame(), EngineJob.Priority.BOT_MOVE, LONG_SEARCH));
+    }
+
+    private static void record(List<EngineJob> finished, EngineJob job) {
+        synchronized (finished) {
+            finished.add(job);
+        }
+    }
+
+    private static void waitUntilRunning(EnginePool pool) throws InterruptedException {
+        for (int i = 0; i < 1000 && pool.runningJobs() == 0; ++i) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, pool.runningJobs());
+    }
+}
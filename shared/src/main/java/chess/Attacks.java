@@ -0,0 +1,253 @@
+package chess;
+
+/**
+ * Precomputed attack tables for answering which squares a piece attacks
+ * <p>
+ * Squares are bitboard indexes as used by {@link ChessBoard}, from 0 (a1) to 63 (h8).
+ * Knights, kings, and pawns use a table lookup. Sliding pieces use magic bitboards: the
+ * occupied squares that can block a rook or bishop on a square are masked out, multiplied
+ * by that square's magic number, and the top bits of the product index a table holding
+ * the attacks for every arrangement of blockers. The magic numbers are found by a seeded
+ * random search when the class loads, so the tables are the same in every run.
+ */
+final class Attacks {
+
+    /**
+     * Ray directions, split so that rays toward higher square indexes come first
+     */
+    private static final int NORTH = 0;
+    private static final int EAST = 1;
+    private static final int NORTH_EAST = 2;
+    private static final int NORTH_WEST = 3;
+    private static final int SOUTH = 4;
+    private static final int WEST = 5;
+    private static final int SOUTH_WEST = 6;
+    private static final int SOUTH_EAST = 7;
+
+    private static final int[][] RAY_STEPS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}};
+    private static final int[][] KNIGHT_STEPS = {{2, -1}, {2, 1}, {-2, -1}, {-2, 1}, {1, -2}, {-1, -2}, {1, 2}, {-1, 2}};
+
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    /**
+     * Pawn attacks indexed by team color ordinal, then square
+     */
+    static final long[][] PAWN = new long[2][64];
+    private static final long[][] RAYS = new long[8][64];
+    /**
+     * The squares strictly between two squares on a shared rank, file, or diagonal, or 0
+     * if the squares are not aligned
+     */
+    static final long[][] BETWEEN = new long[64][64];
+    /**
+     * The whole rank, file, or diagonal through two aligned squares, or 0 if the squares
+     * are not aligned
+     */
+    static final long[][] LINE = new long[64][64];
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+    /**
+     * Attack sets for every square and arrangement of blockers, indexed through the magics
+     */
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    /**
+     * The magic lookup for one sliding piece on one square
+     *
+     * @param mask the squares whose occupancy can change the attacks, leaving out the board
+     *             edges since a ray always reaches the edge square
+     * @param magic the multiplier that maps every subset of the mask to its own table slot
+     *              or to a slot holding the same attacks
+     * @param shift how far to shift the product so only the index bits remain
+     * @param offset where this square's slots start in the shared table
+     */
+    private record Magic(long mask, long magic, int shift, int offset) {
+        int index(long occupied) {
+            return offset + (int) (((occupied & mask) * magic) >>> shift);
+        }
+    }
+
+    static {
+        for (int square = 0; square < 64; ++square) {
+            int row = square / 8;
+            int col = square % 8;
+            for (int[] step : KNIGHT_STEPS) {
+                KNIGHT[square] |= bit(row + step[0], col + step[1]);
+            }
+            for (int direction = 0; direction < 8; ++direction) {
+                int rowIncrement = RAY_STEPS[direction][0];
+                int colIncrement = RAY_STEPS[direction][1];
+                KING[square] |= bit(row + rowIncrement, col + colIncrement);
+                for (int newRow = row + rowIncrement, newCol = col + colIncrement; onBoard(newRow, newCol);
+                     newRow += rowIncrement, newCol += colIncrement) {
+                    RAYS[direction][square] |= bit(newRow, newCol);
+                }
+            }
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+        }
+
+        SplitMix64 random = new SplitMix64(0x9E3779B97F4A7C15L);
+        ROOK_TABLE = findMagics(new int[]{NORTH, EAST, SOUTH, WEST}, ROOK_MAGICS, random);
+        BISHOP_TABLE = findMagics(new int[]{NORTH_EAST, NORTH_WEST, SOUTH_EAST, SOUTH_WEST}, BISHOP_MAGICS, random);
+
+        for (int from = 0; from < 64; ++from) {
+            for (int to = 0; to < 64; ++to) {
+                if (from == to) {
+                    continue;
+                }
+                long fromBit = 1L << from;
+                long toBit = 1L << to;
+                if ((rook(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = rook(from, toBit) & rook(to, fromBit);
+                    LINE[from][to] = (rook(from, 0) & rook(to, 0)) | fromBit | toBit;
+                } else if ((bishop(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = bishop(from, toBit) & bishop(to, fromBit);
+                    LINE[from][to] = (bishop(from, 0) & bishop(to, 0)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return 0 <= row && row < 8 && 0 <= col && col < 8;
+    }
+
+    /**
+     * @return the bitboard with only the given zero-based row and column set, or 0 if off the board
+     */
+    private static long bit(int row, int col) {
+        return onBoard(row, col) ? 1L << (row * 8 + col) : 0L;
+    }
+
+    /**
+     * Finds a magic number for every square for a sliding piece and fills its attack table
+     *
+     * @param directions the ray directions the piece slides in
+     * @param magics the array to store each square's magic lookup in
+     * @param random the random number generator the magic numbers are drawn from
+     * @return the attack table the magics index into
+     */
+    private static long[] findMagics(int[] directions, Magic[] magics, SplitMix64 random) {
+        long[] masks = new long[64];
+        int size = 0;
+        for (int square = 0; square < 64; ++square) {
+            for (int direction : directions) {
+                // The last square of a ray is on the edge, so it never blocks anything beyond it
+                long ray = RAYS[direction][square];
+                long edge = (direction < SOUTH) ? Long.highestOneBit(ray) : Long.lowestOneBit(ray);
+                masks[square] |= ray & ~edge;
+            }
+            size += 1 << Long.bitCount(masks[square]);
+        }
+
+        long[] table = new long[size];
+        long[] occupancies = new long[4096];
+        long[] attacks = new long[4096];
+        int[] used = new int[4096];
+        int attempt = 0;
+        int offset = 0;
+        for (int square = 0; square < 64; ++square) {
+            long mask = masks[square];
+            int bits = Long.bitCount(mask);
+
+            // Enumerate every subset of the mask with the carry-rippler trick
+            int count = 0;
+            long occupied = 0;
+            do {
+                occupancies[count] = occupied;
+                attacks[count++] = slidingAttacks(directions, square, occupied);
+                occupied = (occupied - mask) & mask;
+            } while (occupied != 0);
+
+            // Try sparse random numbers until one sends no two different attack sets to one slot
+            while (true) {
+                long magic = random.next() & random.next() & random.next();
+                if (Long.bitCount((mask * magic) >>> 56) < 6) {
+                    continue;
+                }
+                Magic candidate = new Magic(mask, magic, 64 - bits, offset);
+                ++attempt;
+                boolean collision = false;
+                for (int i = 0; i < count && !collision; ++i) {
+                    int index = candidate.index(occupancies[i]);
+                    if (used[index - offset] != attempt) {
+                        used[index - offset] = attempt;
+                        table[index] = attacks[i];
+                    } else {
+                        collision = table[index] != attacks[i];
+                    }
+                }
+                if (!collision) {
+                    magics[square] = candidate;
+                    break;
+                }
+            }
+            offset += count;
+        }
+        return table;
+    }
+
+    /**
+     * Computes sliding attacks the slow way, one ray at a time, to fill the magic tables
+     */
+    private static long slidingAttacks(int[] directions, int square, long occupied) {
+        long attacks = 0;
+        for (int direction : directions) {
+            attacks |= ray(direction, square, occupied);
+        }
+        return attacks;
+    }
+
+    /**
+     * Finds the squares along one ray up to and including the first occupied square
+     */
+    private static long ray(int direction, int square, long occupied) {
+        long attacks = RAYS[direction][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            int blocker = (direction < SOUTH) ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[direction][blocker];
+        }
+        return attacks;
+    }
+
+    /**
+     * Determines the squares a rook attacks
+     *
+     * @param square the square the rook is on
+     * @param occupied the bitboard of every occupied square
+     * @return the attacked squares, including occupied squares that block a ray
+     */
+    static long rook(int square, long occupied) {
+        return ROOK_TABLE[ROOK_MAGICS[square].index(occupied)];
+    }
+
+    /**
+     * Determines the squares a bishop attacks
+     *
+     * @param square the square the bishop is on
+     * @param occupied the bitboard of every occupied square
+     * @return the attacked squares, including occupied squares that block a ray
+     */
+    static long bishop(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_MAGICS[square].index(occupied)];
+    }
+
+    /**
+     * Determines the squares a queen attacks
+     *
+     * @param square the square the queen is on
+     * @param occupied the bitboard of every occupied square
+     * @return the attacked squares, including occupied squares that block a ray
+     */
+    static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+}
@@ -1,27 +1,30 @@
 package chess;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  * Establishes the logic of how a bishop moves
  */
 public class BishopMoveLogic extends PieceMoveLogic {
 
+    /**
+     * The shared, stateless bishop move logic
+     */
+    public static final BishopMoveLogic INSTANCE = new BishopMoveLogic();
+
+    private BishopMoveLogic() {
+    }
+
     /**
      * Calculates all the positions a bishop can move to
      * Does not take into account moves that are illegal due to leaving the king in
      * danger
      *
      * @param board the current chess board
-     * @param myPosition the bishop's position
-     * @return collection of valid moves
+     * @param mySquare the square index the bishop is on
+     * @param myPiece the bishop
+     * @param moves the move list to add the moves to
      */
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition, ChessPiece myPiece) {
-        // Directions a bishop can move
-        Direction[] possibleDirections = {Direction.UP_AND_LEFT, Direction.UP_AND_RIGHT, Direction.DOWN_AND_LEFT,
-                Direction.DOWN_AND_RIGHT};
-        return calculateValidMoves(possibleDirections, myPiece, myPosition, board);
+    public void pieceMoves(ChessBoard board, int mySquare, ChessPiece myPiece, MoveList moves) {
+        addMoves(board, myPiece, mySquare, Attacks.bishop(mySquare, board.occupied()), moves);
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,108 @@
 package chess;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
  * A chessboard that can hold and rearrange chess pieces
+ * <p>
+ * The board is stored as a set of bitboards: one 64-bit word per piece color and type,
+ * plus an occupancy mask per team. Bit {@code (row - 1) * 8 + (col - 1)} of a word is set
+ * when that square holds the corresponding piece, so a1 is bit 0 and h8 is bit 63.
+ * The Zobrist key and evaluation totals are derived from the pieces, so they are left
+ * out of JSON and rebuilt when a board is read back.
  */
+@JsonAdapter(ChessBoard.TotalsRestorer.class)
 public class ChessBoard {
 
-    private final ChessPiece[][] squares = new ChessPiece[8][8];
+    /**
+     * The number of distinct piece color and type combinations
+     */
+    static final int PIECE_COUNT = 12;
+
+    /**
+     * Castling rights, combined with bitwise or
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    /**
+     * The game phase with every queen, rook, bishop, and knight still on the board
+     */
+    public static final int MAX_PHASE = PieceSquareTables.MAX_PHASE;
+
+    /**
+     * The castling rights that survive a move to or from each square: moving a king or a
+     * rook off its home square, or capturing on a rook's home square, loses those rights
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+    }
+
+    /**
+     * Marks an undo record whose move captured nothing
+     */
+    private static final int NO_PIECE = 0xF;
+
+    private final long[] pieces = new long[PIECE_COUNT];
+    private final long[] occupancy = new long[2];
+    /**
+     * The Zobrist key of the pieces on the board, kept current as pieces are placed and removed
+     */
+    private transient long pieceKey = 0;
+    /**
+     * Running totals of the pieces' middlegame and endgame scores and of the game phase,
+     * kept current alongside the Zobrist key
+     */
+    private transient int midgameScore = 0;
+    private transient int endgameScore = 0;
+    private transient int phase = 0;
+    private int castlingRights = ALL_CASTLING;
+    /**
+     * The square a pawn skipped over with a two-square move on the last move, or -1 if none
+     */
+    private int enPassantSquare = -1;
+    private transient long[] undoStack = new long[64];
+    private transient int undoCount = 0;
 
     public ChessBoard() {
     }
 
+    /**
+     * Creates a copy of a given board
+     *
+     * @param sourceBoard the chess board to copy
+     */
+    public ChessBoard(ChessBoard sourceBoard) {
+        System.arraycopy(sourceBoard.pieces, 0, pieces, 0, PIECE_COUNT);
+        System.arraycopy(sourceBoard.occupancy, 0, occupancy, 0, 2);
+        pieceKey = sourceBoard.pieceKey;
+        midgameScore = sourceBoard.midgameScore;
+        endgameScore = sourceBoard.endgameScore;
+        phase = sourceBoard.phase;
+        castlingRights = sourceBoard.castlingRights;
+        enPassantSquare = sourceBoard.enPassantSquare;
+    }
+
     /**
      * Overrides the equals method to compare attributes of ChessBoard
      *
@@ -23,17 +114,18 @@ public class ChessBoard {
         if (this == obj) { return true; }
         if (obj == null || getClass() != obj.getClass()) { return false; }
         ChessBoard board = (ChessBoard) obj;
-        return Arrays.deepEquals(squares, board.squares);
+        return Arrays.equals(pieces, board.pieces);
     }
 
     /**
-     * Overrides the hash method for larger hash spread
+     * Overrides the hash method to use the Zobrist key of the piece placement, which is
+     * all that equals compares
      *
      * @return the new hash code
      */
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(pieceKey);
     }
 
     /**
@@ -71,12 +163,14 @@ public class ChessBoard {
     }
 
     private String assignCharacters(int row, int col) {
-        if (squares[row][col] == null) {
+        int index = pieceIndexAt(row * 8 + col);
+        if (index < 0) {
             return " ";
         }
         else {
-            return switch (squares[row][col].getTeamColor()) {
-                case WHITE -> switch (squares[row][col].getPieceType()) {
+            ChessPiece piece = ChessPiece.fromIndex(index);
+            return switch (piece.getTeamColor()) {
+                case WHITE -> switch (piece.getPieceType()) {
                     case KING -> "K";
                     case QUEEN -> "Q";
                     case BISHOP -> "B";
@@ -84,7 +178,7 @@ public class ChessBoard {
                     case ROOK -> "R";
                     case PAWN -> "P";
                 };
-                case BLACK -> switch (squares[row][col].getPieceType()) {
+                case BLACK -> switch (piece.getPieceType()) {
                     case KING -> "k";
                     case QUEEN -> "q";
                     case BISHOP -> "b";
@@ -96,17 +190,315 @@ public class ChessBoard {
         }
     }
 
+    /**
+     * Gets the Zobrist key of the board, a 64-bit hash of where every piece is, the
+     * castling rights, and the en passant target, so that positions with different move
+     * options hash differently. The piece part is updated incrementally as pieces move,
+     * so reading it takes constant time
+     *
+     * @return the board's Zobrist key
+     */
+    public long zobristKey() {
+        long key = pieceKey ^ Zobrist.CASTLING[castlingRights];
+        return (enPassantSquare < 0) ? key : key ^ Zobrist.EN_PASSANT[enPassantSquare % 8];
+    }
+
+    /**
+     * Gets the Zobrist key of the board combined with whose turn it is, the same key
+     * {@link ChessGame#zobristKey()} gives for a game with this board
+     *
+     * @param teamToMove the team whose turn it is
+     * @return the position's Zobrist key
+     */
+    public long zobristKey(ChessGame.TeamColor teamToMove) {
+        return (teamToMove == ChessGame.TeamColor.BLACK) ? zobristKey() ^ Zobrist.BLACK_TO_MOVE : zobristKey();
+    }
+
+    /**
+     * Gets the material and piece placement score of the board for the middlegame, from
+     * white's side. It is updated incrementally as pieces move, so reading it takes
+     * constant time
+     *
+     * @return the score in centipawns, positive when white is better off
+     */
+    public int midgameScore() {
+        return midgameScore;
+    }
+
+    /**
+     * Gets the material and piece placement score of the board for the endgame, from
+     * white's side. It is updated incrementally as pieces move
+     *
+     * @return the score in centipawns, positive when white is better off
+     */
+    public int endgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Gets how far the game is from an endgame, counting 4 for each queen, 2 for each rook,
+     * and 1 for each bishop and knight on the board. Promotions can push it past MAX_PHASE
+     *
+     * @return the game phase, 0 when only kings and pawns remain
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * Gets which castling moves are still allowed, as far as the kings and rooks having
+     * moved is concerned
+     *
+     * @return the castling rights, as WHITE_KINGSIDE, WHITE_QUEENSIDE, BLACK_KINGSIDE,
+     * and BLACK_QUEENSIDE combined with bitwise or
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Sets which castling moves are still allowed
+     *
+     * @param castlingRights the castling rights, combined with bitwise or
+     */
+    public void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights & ALL_CASTLING;
+    }
+
+    /**
+     * Gets the square a pawn skipped over by moving two squares on the last move, which
+     * an enemy pawn may capture onto en passant
+     * The target is only set when an enemy pawn stands ready to make that capture
+     *
+     * @return the en passant target position, or null if there is none
+     */
+    public ChessPosition getEnPassantTarget() {
+        return (enPassantSquare < 0) ? null : ChessPosition.fromSquare(enPassantSquare);
+    }
+
+    /**
+     * Sets the en passant target square
+     *
+     * @param position the en passant target position, or null if there is none
+     */
+    public void setEnPassantTarget(ChessPosition position) {
+        enPassantSquare = (position == null) ? -1 : square(position);
+    }
+
+    /**
+     * @return the square index of the en passant target, or -1 if there is none
+     */
+    int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Converts a chess position into its bitboard square index
+     *
+     * @param position the position to convert
+     * @return the square index, from 0 (a1) to 63 (h8)
+     */
+    static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    /**
+     * Determines the bitboard index used for a piece color and type
+     *
+     * @param color the team color of the piece
+     * @param type the type of the piece
+     * @return the index into the piece bitboards
+     */
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    /**
+     * Determines which piece bitboard holds a square
+     * The index is the team color's ordinal times 6 plus the piece type's ordinal
+     *
+     * @param square the square index to look up
+     * @return the index of the piece bitboard, or -1 if the square is empty
+     */
+    public int pieceIndexAt(int square) {
+        long bit = 1L << square;
+        if (((occupancy[0] | occupancy[1]) & bit) == 0) {
+            return -1;
+        }
+        int index = (occupancy[0] & bit) != 0 ? 0 : 6;
+        while ((pieces[index] & bit) == 0) {
+            ++index;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the bitboard of every square holding a given piece
+     *
+     * @param color the team color of the piece
+     * @param type the type of the piece
+     * @return the piece bitboard
+     */
+    public long pieceSet(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    /**
+     * Gets the bitboard of every square occupied by a team
+     *
+     * @param color the team to look up
+     * @return the team's occupancy mask
+     */
+    public long occupancy(ChessGame.TeamColor color) {
+        return occupancy[color.ordinal()];
+    }
+
+    /**
+     * @return the bitboard of every occupied square
+     */
+    public long occupied() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    /**
+     * Gets the position of a team's king
+     *
+     * @param color the team whose king to find
+     * @return the position of the king, or null if that team has no king on the board
+     */
+    public ChessPosition getKingPosition(ChessGame.TeamColor color) {
+        int square = kingSquare(color);
+        return (square < 0) ? null : ChessPosition.fromSquare(square);
+    }
+
+    /**
+     * Gets the square of a team's king in constant time, read straight from the king's
+     * bitboard, which addPiece, movePiece, makeMove, and resetBoard keep current
+     *
+     * @param color the team whose king to find
+     * @return the square index of the king, or -1 if that team has no king on the board
+     */
+    public int kingSquare(ChessGame.TeamColor color) {
+        long kings = pieces[pieceIndex(color, ChessPiece.PieceType.KING)];
+        return (kings == 0) ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Determines if a square is attacked by any piece of a team
+     *
+     * @param position the position to check
+     * @param attacker the team that may be attacking
+     * @return if any piece of the attacking team attacks the position
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(square(position), attacker);
+    }
+
+    /**
+     * Determines if a square is attacked by radiating outward from it: a square is
+     * attacked by a piece exactly when that piece type, standing on the square, would
+     * attack the piece
+     *
+     * @param square the square index to check
+     * @param attacker the team that may be attacking
+     * @return if any piece of the attacking team attacks the square
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(square, attacker, occupied());
+    }
+
+    /**
+     * Determines if a square is attacked, with sliding pieces blocked only by the given
+     * occupancy, for asking whether a square would be attacked once a piece has moved
+     *
+     * @param square the square index to check
+     * @param attacker the team that may be attacking
+     * @param occupied the bitboard of squares that block sliding pieces
+     * @return if any piece of the attacking team attacks the square
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker, long occupied) {
+        int base = attacker.ordinal() * 6;
+        int defender = 1 - attacker.ordinal();
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+
+        if ((Attacks.PAWN[defender][square] & pieces[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0
+                || (Attacks.KNIGHT[square] & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0
+                || (Attacks.KING[square] & pieces[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        return (Attacks.bishop(square, occupied) & (pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens)) != 0
+                || (Attacks.rook(square, occupied) & (pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens)) != 0;
+    }
+
+    /**
+     * Finds every piece of a team that attacks a square
+     *
+     * @param square the square index to check
+     * @param attacker the team that may be attacking
+     * @return the bitboard of the attacking pieces
+     */
+    long attackersOf(int square, ChessGame.TeamColor attacker) {
+        int base = attacker.ordinal() * 6;
+        int defender = 1 - attacker.ordinal();
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long occupied = occupied();
+
+        return (Attacks.PAWN[defender][square] & pieces[base + ChessPiece.PieceType.PAWN.ordinal()])
+                | (Attacks.KNIGHT[square] & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()])
+                | (Attacks.KING[square] & pieces[base + ChessPiece.PieceType.KING.ordinal()])
+                | (Attacks.bishop(square, occupied) & (pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens))
+                | (Attacks.rook(square, occupied) & (pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens));
+    }
+
+    /**
+     * Places a piece on an empty square
+     *
+     * @param square the square index to fill
+     * @param index the piece bitboard index
+     */
+    private void setSquare(int square, int index) {
+        long bit = 1L << square;
+        pieces[index] |= bit;
+        occupancy[index / 6] |= bit;
+        pieceKey ^= Zobrist.PIECE_SQUARE[index][square];
+        midgameScore += PieceSquareTables.MIDGAME[index][square];
+        endgameScore += PieceSquareTables.ENDGAME[index][square];
+        phase += PieceSquareTables.PHASE[index];
+    }
+
+    /**
+     * Removes whatever piece is on a square
+     *
+     * @param square the square index to clear
+     */
+    private void clearSquare(int square) {
+        int index = pieceIndexAt(square);
+        if (index >= 0) {
+            long bit = 1L << square;
+            pieces[index] &= ~bit;
+            occupancy[index / 6] &= ~bit;
+            pieceKey ^= Zobrist.PIECE_SQUARE[index][square];
+            midgameScore -= PieceSquareTables.MIDGAME[index][square];
+            endgameScore -= PieceSquareTables.ENDGAME[index][square];
+            phase -= PieceSquareTables.PHASE[index];
+        }
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
      * @param position where to add the piece to
-     * @param piece the piece to add
+     * @param piece the piece to add, or null to empty the square
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
         if (position.getRow() < 1 || position.getRow() > 8 || position.getColumn() < 1 || position.getColumn() > 8) {
             throw new RuntimeException("Cannot add piece, position out of bounds!");
         }
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        int square = square(position);
+        clearSquare(square);
+        if (piece != null) {
+            setSquare(square, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -119,77 +511,235 @@ public class ChessBoard {
     public ChessPiece getPiece(ChessPosition position) {
         if (position.getRow() < 1 || position.getRow() > 8 || position.getColumn() < 1 || position.getColumn() > 8) {
             throw new RuntimeException("Cannot get piece, position out of bounds!");
-        } else {
-            return squares[position.getRow() - 1][position.getColumn() - 1];
         }
+        int index = pieceIndexAt(square(position));
+        return (index < 0) ? null : ChessPiece.fromIndex(index);
     }
 
     /**
      * Moves a piece on the chess board
      *
      * @param move The move to be made
+     * @throws IllegalArgumentException if there is no piece at the move's start position
      */
     public void movePiece(ChessMove move) {
-        // Start Position
-        ChessPosition startPosition = move.getStartPosition();
-        int startRow = startPosition.getRow();
-        int startCol = startPosition.getColumn();
-        // End Position
-        ChessPosition endPosition = move.getEndPosition();
-        int endRow = endPosition.getRow();
-        int endCol = endPosition.getColumn();
-        // Piece
-        ChessPiece myPiece = getPiece(startPosition);
-
-        // Set the current position to null
-        squares[startRow - 1][startCol - 1] = null;
+        applyMove(square(move.getStartPosition()), square(move.getEndPosition()), move.getPromotionPiece());
+    }
+
+    /**
+     * Makes a move on the chess board in place, remembering what it changed so
+     * that {@link #unmakeMove()} can restore the board without copying it
+     *
+     * @param move The move to be made
+     * @throws IllegalArgumentException if there is no piece at the move's start position
+     */
+    public void makeMove(ChessMove move) {
+        makeMove(Move.fromChessMove(move));
+    }
+
+    /**
+     * Makes a packed move on the chess board in place, remembering what it changed so
+     * that {@link #unmakeMove()} can restore the board without copying it
+     *
+     * @param move The packed move to be made
+     */
+    public void makeMove(int move) {
+        long record = applyMove(Move.startSquare(move), Move.endSquare(move), Move.promotionPiece(move));
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+        }
+        undoStack[undoCount++] = record;
+    }
+
+    /**
+     * Takes back the most recent move made with {@link #makeMove(ChessMove)} or {@link #makeMove(int)}
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new RuntimeException("Cannot unmake move, no moves have been made!");
+        }
+        long record = undoStack[--undoCount];
+        int startSquare = (int) (record & 0x3F);
+        int endSquare = (int) ((record >>> 6) & 0x3F);
+        int movedIndex = (int) ((record >>> 12) & 0xF);
+        int capturedIndex = (int) ((record >>> 16) & 0xF);
+        int movedType = movedIndex % 6;
+        castlingRights = (int) ((record >>> 20) & 0xF);
+        enPassantSquare = (int) ((record >>> 24) & 0x7F) - 1;
+
+        // Clearing the end square also removes any promoted piece
+        clearSquare(endSquare);
+        setSquare(startSquare, movedIndex);
+        if (capturedIndex != NO_PIECE) {
+            setSquare(endSquare, capturedIndex);
+        } else if (isEnPassant(movedType, startSquare, endSquare)) {
+            setSquare(enPassantVictim(startSquare, endSquare), (movedIndex + 6) % PIECE_COUNT);
+        } else if (movedType == ChessPiece.PieceType.KING.ordinal() && Math.abs(endSquare - startSquare) == 2) {
+            movePieceBetween((startSquare + endSquare) / 2, castlingRookSquare(startSquare, endSquare));
+        }
+    }
+
+    /**
+     * Moves a piece between two squares, replacing it with its promotion piece if given
+     * A pawn moving onto the en passant target also captures the pawn that skipped it,
+     * and a king moving two columns castles, bringing the rook across with it
+     *
+     * @param startSquare the square the piece is moving from
+     * @param endSquare the square the piece is moving to
+     * @param promotionPiece the type to promote to, or null if not a promotion
+     * @return an undo record packing the squares, the moved piece, any captured piece, and
+     * the castling rights and en passant target from before the move
+     * @throws IllegalArgumentException if there is no piece on the start square
+     */
+    private long applyMove(int startSquare, int endSquare, ChessPiece.PieceType promotionPiece) {
+        int movedIndex = pieceIndexAt(startSquare);
+        if (movedIndex < 0) {
+            throw new IllegalArgumentException("Cannot move piece, no piece at the start position!");
+        }
+        int capturedIndex = pieceIndexAt(endSquare);
+        int movedType = movedIndex % 6;
+        long record = startSquare | (endSquare << 6) | (movedIndex << 12)
+                | ((long) (capturedIndex < 0 ? NO_PIECE : capturedIndex) << 16)
+                | ((long) castlingRights << 20) | ((long) (enPassantSquare + 1) << 24);
+
+        // Clear the start square and anything being captured
+        clearSquare(startSquare);
+        clearSquare(endSquare);
 
         // Move the piece or exchange it for its promotion piece
-        if (move.getPromotionPiece() == null) {
-            squares[endRow - 1][endCol - 1] = myPiece;
-        } else {
-            squares[endRow - 1][endCol - 1] = new ChessPiece(myPiece.getTeamColor(), move.getPromotionPiece());
+        int placedIndex = movedIndex;
+        if (promotionPiece != null) {
+            placedIndex = pieceIndex(ChessPiece.fromIndex(movedIndex).getTeamColor(), promotionPiece);
+        }
+        setSquare(endSquare, placedIndex);
+
+        if (isEnPassant(movedType, startSquare, endSquare)) {
+            clearSquare(enPassantVictim(startSquare, endSquare));
+        } else if (movedType == ChessPiece.PieceType.KING.ordinal() && Math.abs(endSquare - startSquare) == 2) {
+            movePieceBetween(castlingRookSquare(startSquare, endSquare), (startSquare + endSquare) / 2);
+        }
+
+        castlingRights &= CASTLING_MASK[startSquare] & CASTLING_MASK[endSquare];
+        enPassantSquare = -1;
+        if (movedType == ChessPiece.PieceType.PAWN.ordinal() && Math.abs(endSquare - startSquare) == 16) {
+            // Only record the skipped square if an enemy pawn could capture onto it
+            int skippedSquare = (startSquare + endSquare) / 2;
+            long enemyPawns = pieces[(movedIndex + 6) % PIECE_COUNT];
+            if ((Attacks.PAWN[movedIndex / 6][skippedSquare] & enemyPawns) != 0) {
+                enPassantSquare = skippedSquare;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * A pawn only captures en passant by moving diagonally onto the target, never by
+     * pushing straight onto it
+     *
+     * @return if a move of the given piece type captures en passant
+     */
+    private boolean isEnPassant(int movedType, int startSquare, int endSquare) {
+        return movedType == ChessPiece.PieceType.PAWN.ordinal() && endSquare == enPassantSquare
+                && (startSquare % 8) != (endSquare % 8);
+    }
+
+    /**
+     * Moves whatever piece is on one square to another, empty square
+     */
+    private void movePieceBetween(int fromSquare, int toSquare) {
+        int index = pieceIndexAt(fromSquare);
+        if (index >= 0) {
+            clearSquare(fromSquare);
+            setSquare(toSquare, index);
         }
     }
 
+    /**
+     * @return the square of the pawn captured by an en passant move, which is on the
+     * capturing pawn's row and the target's column
+     */
+    private static int enPassantVictim(int startSquare, int endSquare) {
+        return (startSquare & ~7) | (endSquare & 7);
+    }
+
+    /**
+     * @return the home square of the rook a king castles with
+     */
+    private static int castlingRookSquare(int kingStart, int kingEnd) {
+        return (kingEnd > kingStart) ? kingStart + 3 : kingStart - 4;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        ChessPosition[][] allPositions = new ChessPosition[8][8];
+        Arrays.fill(pieces, 0L);
+        castlingRights = ALL_CASTLING;
+        enPassantSquare = -1;
 
-        // Create array of positions, set every space to null
-        for (int row = 1; row < 9; ++row) {
-            for (int col = 1; col < 9; ++col) {
-                squares[row-1][col-1] = null;
-                allPositions[row-1][col-1] = new ChessPosition(row, col);
+        // Rows 1 & 2, mirrored onto rows 8 & 7 for black
+        long[] whiteStart = new long[6];
+        whiteStart[ChessPiece.PieceType.KING.ordinal()] = 0x10L;
+        whiteStart[ChessPiece.PieceType.QUEEN.ordinal()] = 0x08L;
+        whiteStart[ChessPiece.PieceType.BISHOP.ordinal()] = 0x24L;
+        whiteStart[ChessPiece.PieceType.KNIGHT.ordinal()] = 0x42L;
+        whiteStart[ChessPiece.PieceType.ROOK.ordinal()] = 0x81L;
+        whiteStart[ChessPiece.PieceType.PAWN.ordinal()] = 0xFF00L;
+
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            long white = whiteStart[type.ordinal()];
+            pieces[pieceIndex(ChessGame.TeamColor.WHITE, type)] = white;
+            pieces[pieceIndex(ChessGame.TeamColor.BLACK, type)] = Long.reverseBytes(white);
+        }
+        occupancy[0] = 0xFFFFL;
+        occupancy[1] = 0xFFFF000000000000L;
+
+        recomputeTotals();
+    }
+
+    /**
+     * Rebuilds the Zobrist key and evaluation totals from the pieces on the board
+     */
+    private void recomputeTotals() {
+        pieceKey = 0;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        for (int index = 0; index < PIECE_COUNT; ++index) {
+            for (long set = pieces[index]; set != 0; set &= set - 1) {
+                int square = Long.numberOfTrailingZeros(set);
+                pieceKey ^= Zobrist.PIECE_SQUARE[index][square];
+                midgameScore += PieceSquareTables.MIDGAME[index][square];
+                endgameScore += PieceSquareTables.ENDGAME[index][square];
+                phase += PieceSquareTables.PHASE[index];
             }
         }
+    }
+
+    /**
+     * Reads and writes boards with Gson's default field mapping, rebuilding the totals
+     * that are not stored once a board has been read
+     */
+    static final class TotalsRestorer implements TypeAdapterFactory {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            TypeAdapter<T> fields = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException {
+                    fields.write(out, value);
+                }
 
-        // Rows 2 & 7
-        for (int pawn = 0; pawn < 8; ++pawn) {
-            addPiece(allPositions[1][pawn], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(allPositions[6][pawn], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        }
-
-        //Row 1
-        addPiece(allPositions[0][0], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(allPositions[0][1], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(allPositions[0][2], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(allPositions[0][3], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(allPositions[0][4], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(allPositions[0][5], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(allPositions[0][6], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(allPositions[0][7], new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        // Row 8
-        addPiece(allPositions[7][0], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(allPositions[7][1], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(allPositions[7][2], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(allPositions[7][3], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(allPositions[7][4], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(allPositions[7][5], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(allPositions[7][6], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(allPositions[7][7], new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+                @Override
+                public T read(JsonReader in) throws IOException {
+                    T value = fields.read(in);
+                    if (value instanceof ChessBoard board) {
+                        board.recomputeTotals();
+                    }
+                    return value;
+                }
+            };
+        }
     }
 }
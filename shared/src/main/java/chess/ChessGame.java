@@ -1,7 +1,9 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 
 /**
@@ -12,6 +14,29 @@ public class ChessGame {
     public boolean gameOver = false;
     private ChessBoard gameBoard = new ChessBoard();
     private TeamColor turn;
+    /**
+     * The Zobrist keys of the positions since the last capture or pawn move, before the
+     * current one, oldest first. Earlier positions can never repeat, so they are dropped
+     */
+    private long[] positionHistory = new long[16];
+    private int historySize = 0;
+    /**
+     * The number of moves made since the last capture or pawn move
+     */
+    private int halfmoveClock = 0;
+    /**
+     * The number of the current full move, starting at 1 and incremented after black moves
+     */
+    private int fullmoveNumber = 1;
+    private transient MoveList scratchMoves = new MoveList();
+    /**
+     * Every legal move for the team whose turn it is, generated on first use and kept
+     * until the position's Zobrist key changes
+     */
+    private transient MoveList legalMoveCache = new MoveList();
+    private transient boolean legalMovesCached = false;
+    private transient long legalMovesKey = 0;
+    private transient Collection<ChessMove> legalMoveView = null;
 
     public ChessGame() {
         this.turn = TeamColor.WHITE;
@@ -41,13 +66,25 @@ public class ChessGame {
     }
 
     /**
-     * Overrides the hash method for larger hash spread
+     * Overrides the hash method to combine the board's piece placement hash with whose
+     * turn it is, matching what equals compares
      *
      * @return the new hash code
      */
     @Override
     public int hashCode() {
-        return Objects.hash(gameBoard, turn);
+        return 31 * gameBoard.hashCode() + turn.ordinal();
+    }
+
+    /**
+     * Gets the Zobrist key of the game's position: the board's key, which covers castling
+     * rights and the en passant target, combined with whose turn it is, so it can key
+     * position caches and detect repeated positions
+     *
+     * @return the game's Zobrist key
+     */
+    public long zobristKey() {
+        return gameBoard.zobristKey(turn);
     }
 
     /**
@@ -64,6 +101,49 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         turn = team;
+        clearHistory();
+    }
+
+    /**
+     * Passes the turn to the other team without touching the position history or move
+     * clocks, for walking through moves made directly on the board and taken back again
+     */
+    void switchTurn() {
+        turn = otherTeam(turn);
+    }
+
+    /**
+     * Gets every legal move for the team whose turn it is, generated in a single pass
+     * that locates the king and its pins once for all pieces
+     * The moves are cached against the position's Zobrist key, so asking again before the
+     * position changes costs nothing, however the position is changed
+     *
+     * @return an unmodifiable collection of the legal moves
+     */
+    public Collection<ChessMove> legalMoves() {
+        MoveList legalMoves = cachedLegalMoves();
+        if (legalMoveView == null) {
+            ArrayList<ChessMove> moves = new ArrayList<>(legalMoves.size());
+            legalMoves.addTo(moves);
+            legalMoveView = Collections.unmodifiableList(moves);
+        }
+        return legalMoveView;
+    }
+
+    /**
+     * @return the packed legal moves for the team whose turn it is, generating them if the
+     * position has changed since they were last generated
+     */
+    private MoveList cachedLegalMoves() {
+        long key = zobristKey();
+        if (!legalMovesCached || legalMovesKey != key) {
+            legalMoveCache.clear();
+            MoveGenerator.legalMoves(gameBoard, turn, legalMoveCache);
+            legalMovesCached = true;
+            legalMovesKey = key;
+            legalMoveView = null;
+        }
+        return legalMoveCache;
     }
 
     /**
@@ -74,52 +154,38 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        Collection<ChessMove> potentialMoves;
         ChessPiece myPiece = gameBoard.getPiece(startPosition);
-        TeamColor currentTeam = myPiece.getTeamColor();
 
         // Ensures there is a piece at that space
         if (myPiece == null) { return null; }
 
-        potentialMoves = myPiece.pieceMoves(gameBoard, startPosition);
-        Collection<ChessMove> validMoves = new ArrayList<>(potentialMoves);
-
-        // Copies the chess board, makes a move, and then undoes the move
-        for (ChessMove potentialMove : potentialMoves) {
-            ChessBoard testBoard = copyBoard(gameBoard);
-            gameBoard.movePiece(potentialMove);
-
-            // If a move places the team in check, it is not valid
-            if (isInCheck(currentTeam)) {
-                validMoves.remove(potentialMove);
+        int startSquare = ChessBoard.square(startPosition);
+        ArrayList<ChessMove> validMoves = new ArrayList<>();
+        if (myPiece.getTeamColor() == turn) {
+            // Picks the piece's moves out of the moves for the whole team
+            MoveList legalMoves = cachedLegalMoves();
+            for (int i = 0; i < legalMoves.size(); ++i) {
+                if (Move.startSquare(legalMoves.get(i)) == startSquare) {
+                    validMoves.add(Move.toChessMove(legalMoves.get(i)));
+                }
             }
-            gameBoard = copyBoard(testBoard);
+        } else {
+            MoveList moves = scratchMoves;
+            moves.clear();
+            MoveGenerator.legalMoves(gameBoard, startSquare, moves);
+            moves.addTo(validMoves);
         }
         return validMoves;
     }
 
     /**
-     * Executes all valid moves to determine if the king is still in check
+     * Adds every valid move of a team to a move list as packed moves
      *
-     * @param validMoves the list of current valid moves for a team
-     * @param teamColor the current team's color
-     * @return bool indicating if the king is still in check after executing valid moves
-     */
-    private boolean checkValidMoves(Collection<ChessMove> validMoves, TeamColor teamColor) {
-        if (validMoves != null) {
-            for (ChessMove validMove : validMoves) {
-                ChessBoard testBoard = copyBoard(gameBoard);
-                gameBoard.movePiece(validMove);
-
-                // If a move removes the king from check, not checkmate
-                if (!isInCheck(teamColor)) {
-                    gameBoard = copyBoard(testBoard);
-                    return false;
-                }
-                gameBoard = copyBoard(testBoard);
-            }
-        }
-        return true;
+     * @param teamColor the team to get valid moves for
+     * @param moves the move list to add the moves to
+     */
+    void collectValidMoves(TeamColor teamColor, MoveList moves) {
+        MoveGenerator.legalMoves(gameBoard, teamColor, moves);
     }
 
     /**
@@ -135,16 +201,147 @@ public class ChessGame {
             throw new InvalidMoveException("Error: There is no piece at that start position.");
         } else if (myPiece.getTeamColor() != turn) {
             throw new InvalidMoveException("Error: It's not your turn.");
-        } else if (validMoves(move.getStartPosition()) == null || !validMoves(move.getStartPosition()).contains(move)) {
+        } else if (!isLegalMove(move)) {
             if (myPiece.pieceMoves(gameBoard, move.getStartPosition()).contains(move)) {
                 throw new InvalidMoveException("Error: You can't leave your king in check.");
             } else {
                 throw new InvalidMoveException("Error: Invalid move.");
             }
         } else {
+            recordPosition(myPiece.getPieceType() == ChessPiece.PieceType.PAWN
+                    || gameBoard.getPiece(move.getEndPosition()) != null);
             gameBoard.movePiece(move);
         }
-        setTeamTurn((myPiece.getTeamColor() == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE);
+        if (turn == TeamColor.BLACK) {
+            ++fullmoveNumber;
+        }
+        turn = otherTeam(myPiece.getTeamColor());
+    }
+
+    /**
+     * Determines if a move is one of the cached legal moves of the team whose turn it is
+     *
+     * @param move the move to look up
+     * @return if the move is legal
+     */
+    private boolean isLegalMove(ChessMove move) {
+        ChessPosition end = move.getEndPosition();
+        if (end.getRow() < 1 || end.getRow() > 8 || end.getColumn() < 1 || end.getColumn() > 8) {
+            return false;
+        }
+        // Packing drops a promotion to a king, so only trust a move that survives the round trip
+        int packed = Move.fromChessMove(move);
+        return Move.toChessMove(packed).equals(move) && cachedLegalMoves().contains(packed);
+    }
+
+    /**
+     * Pushes the current position onto the position history before a move is made
+     *
+     * @param irreversible if the move is a capture or pawn move, which resets the halfmove clock
+     */
+    private void recordPosition(boolean irreversible) {
+        if (irreversible) {
+            // No position before a capture or pawn move can occur again
+            historySize = 0;
+            halfmoveClock = 0;
+            return;
+        }
+        if (historySize == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, historySize * 2);
+        }
+        positionHistory[historySize++] = zobristKey();
+        ++halfmoveClock;
+    }
+
+    /**
+     * Forgets every earlier position, for when the board or turn is replaced
+     */
+    private void clearHistory() {
+        historySize = 0;
+        halfmoveClock = 0;
+    }
+
+    /**
+     * Gets the Zobrist keys of the positions since the last capture or pawn move, before
+     * the current one, oldest first, so a search can recognize repetitions of them
+     *
+     * @return a copy of the recent position keys
+     */
+    public long[] getRecentPositionKeys() {
+        int count = Math.min(halfmoveClock, historySize);
+        return Arrays.copyOfRange(positionHistory, historySize - count, historySize);
+    }
+
+    /**
+     * @return the number of moves made since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the number of the current full move, starting at 1 and incremented after black moves
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Determines if the current position has occurred at least three times with the same
+     * team to move, which lets either player claim a draw
+     *
+     * @return true if the position has been repeated three times
+     */
+    public boolean isThreefoldRepetition() {
+        return hasOccurred(3);
+    }
+
+    /**
+     * Determines if the current position has occurred at least five times with the same
+     * team to move, which draws the game without either player claiming it
+     *
+     * @return true if the position has been repeated five times
+     */
+    public boolean isFivefoldRepetition() {
+        return hasOccurred(5);
+    }
+
+    /**
+     * Determines if the current position has occurred a number of times with the same team
+     * to move
+     * Only positions since the last capture or pawn move can match, so at most
+     * halfmoveClock / 2 earlier keys are compared
+     */
+    private boolean hasOccurred(int times) {
+        long key = zobristKey();
+        int count = 1;
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        for (int i = historySize - 2; i >= oldest; i -= 2) {
+            if (positionHistory[i] == key && ++count == times) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if fifty moves by each team have been made without a capture or pawn move,
+     * which lets either player claim a draw
+     *
+     * @return true if the fifty-move rule applies
+     */
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Determines if seventy-five moves by each team have been made without a capture or pawn
+     * move, which draws the game without either player claiming it
+     *
+     * @return true if the seventy-five-move rule applies
+     */
+    public boolean isSeventyFiveMoveRule() {
+        return halfmoveClock >= 150;
     }
 
     /**
@@ -154,33 +351,13 @@ public class ChessGame {
      * @return true if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        // Locates the position of the king
-        ChessPosition kingSpace = findKing(teamColor);
+        // Locates the square of the king
+        int kingSpace = gameBoard.kingSquare(teamColor);
         // Account for poorly-designed test cases where there is no king on the board
-        if (kingSpace == null) { return false; }
+        if (kingSpace < 0) { return false; }
 
-        // Iterates through every space on the board
-        for (int row = 1; row < 9; ++row) {
-            for (int col = 1; col < 9; ++col) {
-                ChessPosition checkPosition = new ChessPosition(row, col);
-
-                // Ensures a space is occupied by an enemy piece
-                if (PieceMoveLogic.spaceOccupied(gameBoard, checkPosition) &&
-                        (gameBoard.getPiece(checkPosition).getTeamColor() != teamColor)) {
-                    Collection<ChessMove> legalMoves = gameBoard.getPiece(checkPosition).pieceMoves(gameBoard, checkPosition);
-
-                    // Determines if the piece can legally attack the king
-                    if (legalMoves.contains(new ChessMove(checkPosition, kingSpace, ChessPiece.PieceType.QUEEN)) ||
-                            legalMoves.contains(new ChessMove(checkPosition, kingSpace, ChessPiece.PieceType.ROOK)) ||
-                            legalMoves.contains(new ChessMove(checkPosition, kingSpace, ChessPiece.PieceType.BISHOP)) ||
-                            legalMoves.contains(new ChessMove(checkPosition, kingSpace, ChessPiece.PieceType.KNIGHT)) ||
-                            legalMoves.contains(new ChessMove(checkPosition, kingSpace, null))) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        // Looks outward from the king for any enemy piece that attacks it
+        return gameBoard.isSquareAttacked(kingSpace, otherTeam(teamColor));
     }
 
     /**
@@ -194,24 +371,24 @@ public class ChessGame {
         if (!isInCheck(teamColor)) {
             return false;
         }
-        // Iterates through every position on the board
-        for (int row = 1; row < 9; ++row) {
-            for (int col = 1; col < 9; ++col) {
-                ChessPosition checkPosition = new ChessPosition(row, col);
-
-                // Ensures a space is occupied by a team piece
-                if (PieceMoveLogic.spaceOccupied(gameBoard, checkPosition) &&
-                        gameBoard.getPiece(checkPosition).getTeamColor() == teamColor) {
-                    Collection<ChessMove> validMoves = validMoves(checkPosition);
-                    // Checks all of a piece's valid moves
-                    if(!checkValidMoves(validMoves, teamColor)) { return false; }
-                }
-            }
+        // Any valid move gets the king out of check
+        if (hasLegalMove(teamColor)) {
+            return false;
         }
         gameOver = true;
         return true;
     }
 
+    /**
+     * Determines if a team has any legal move, using the cached moves when it is that team's turn
+     */
+    private boolean hasLegalMove(TeamColor teamColor) {
+        if (teamColor == turn) {
+            return !cachedLegalMoves().isEmpty();
+        }
+        return MoveGenerator.hasLegalMove(gameBoard, teamColor, scratchMoves);
+    }
+
     /**
      * Determines if the given team is in stalemate, which here is defined as having
      * no valid moves
@@ -224,24 +401,29 @@ public class ChessGame {
         if (isInCheck(teamColor)) {
             return false;
         }
-        // Iterates through every space on the board
-        for (int row = 1; row < 9; ++row) {
-            for (int col = 1; col < 9; ++col) {
-                ChessPosition checkPosition = new ChessPosition(row, col);
-
-                // Ensures a space is occupied by a team piece
-                if (PieceMoveLogic.spaceOccupied(gameBoard, checkPosition) &&
-                        gameBoard.getPiece(checkPosition).getTeamColor() == teamColor) {
-                    // Checks if the piece can move
-                    if (!validMoves(checkPosition).isEmpty()) { return false; }
-
-                }
-            }
+        if (hasLegalMove(teamColor)) {
+            return false;
         }
         gameOver = true;
         return true;
     }
 
+    /**
+     * Determines check, checkmate, stalemate, and draws by repetition or move count for
+     * the team whose turn it is, along with all of that team's valid moves, in a single
+     * pass over its pieces
+     * Unlike isInCheckmate and isInStalemate, this does not mark the game as over
+     *
+     * @return the status of the game for the team to move
+     */
+    public GameStatus evaluateStatus() {
+        boolean inCheck = isInCheck(turn);
+        Collection<ChessMove> legalMoves = legalMoves();
+        boolean noMoves = legalMoves.isEmpty();
+        return new GameStatus(turn, inCheck, inCheck && noMoves, !inCheck && noMoves, isThreefoldRepetition(),
+                isFiftyMoveRule(), isFivefoldRepetition(), isSeventyFiveMoveRule(), legalMoves);
+    }
+
     /**
      * Sets this game's chessboard with a given board
      *
@@ -249,6 +431,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.gameBoard = board;
+        clearHistory();
     }
 
     /**
@@ -268,42 +451,240 @@ public class ChessGame {
      * @return the newly copied chess board
      */
     public ChessBoard copyBoard(ChessBoard sourceBoard) {
-        ChessBoard copyBoard = new ChessBoard();
+        return new ChessBoard(sourceBoard);
+    }
 
-        // Iterates through every space on the chess board and copies the relevant piece over
-        for (int row = 1; row < 9; ++row) {
-            for (int col = 1; col < 9; ++col) {
-                ChessPosition copyPosition = new ChessPosition(row, col);
-                copyBoard.addPiece(copyPosition, sourceBoard.getPiece(copyPosition));
+    /**
+     * Gets the team opposing the given team
+     *
+     * @param teamColor the team of interest
+     * @return the other team
+     */
+    private static TeamColor otherTeam(TeamColor teamColor) {
+        return (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    /**
+     * Creates a game from a position in Forsyth-Edwards Notation (FEN), such as
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     * The halfmove clock and fullmove number may be left off, defaulting to 0 and 1
+     *
+     * @param fen the FEN position
+     * @return a game set up in that position
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame fromFen(String fen) {
+        FenReader reader = new FenReader(fen);
+        ChessBoard board = new ChessBoard();
+
+        // Piece placement, from row 8 down to row 1
+        int row = 8;
+        int col = 1;
+        for (char c = reader.next(); c != ' '; c = reader.next()) {
+            if (c == FenReader.END) {
+                throw reader.invalid("missing side to move");
+            } else if (c == '/') {
+                if (col != 9 || row == 1) { throw reader.invalid("misplaced '/'"); }
+                --row;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 9) { throw reader.invalid("too many squares in a row"); }
+            } else {
+                if (col > 8) { throw reader.invalid("too many squares in a row"); }
+                TeamColor color = Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, col++), ChessPiece.of(color, fenPieceType(c, reader)));
             }
         }
-        return copyBoard;
+        if (row != 1 || col != 9) { throw reader.invalid("piece placement does not cover the board"); }
+
+        // Side to move
+        TeamColor turn = switch (reader.next()) {
+            case 'w' -> TeamColor.WHITE;
+            case 'b' -> TeamColor.BLACK;
+            default -> throw reader.invalid("side to move must be 'w' or 'b'");
+        };
+        reader.expectSpace();
+
+        // Castling rights
+        int castlingRights = 0;
+        char c = reader.next();
+        if (c != '-') {
+            for (; c != ' ' && c != FenReader.END; c = reader.next()) {
+                castlingRights |= switch (c) {
+                    case 'K' -> ChessBoard.WHITE_KINGSIDE;
+                    case 'Q' -> ChessBoard.WHITE_QUEENSIDE;
+                    case 'k' -> ChessBoard.BLACK_KINGSIDE;
+                    case 'q' -> ChessBoard.BLACK_QUEENSIDE;
+                    default -> throw reader.invalid("unknown castling right");
+                };
+            }
+            if (c == ' ') {
+                reader.back();
+            }
+        }
+        board.setCastlingRights(castlingRights);
+        reader.expectSpace();
+
+        // En passant target square
+        c = reader.next();
+        if (c != '-') {
+            char rank = reader.next();
+            if (c < 'a' || c > 'h' || (rank != '3' && rank != '6')) {
+                throw reader.invalid("invalid en passant square");
+            }
+            board.setEnPassantTarget(ChessPosition.of(rank - '0', c - 'a' + 1));
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+
+        // Optional move clocks
+        if (reader.hasMore()) {
+            reader.expectSpace();
+            game.halfmoveClock = reader.nextNumber();
+            if (reader.hasMore()) {
+                reader.expectSpace();
+                game.fullmoveNumber = reader.nextNumber();
+            }
+        }
+        if (reader.hasMore()) { throw reader.invalid("unexpected trailing characters"); }
+        return game;
     }
 
     /**
-     * Finds the position of the king of a given color
+     * Writes this game's position in Forsyth-Edwards Notation (FEN)
      *
-     * @param teamColor which team's king to look for
-     * @return the position of the king, or null if running a
-     * poorly-designed test case where there's no king on the board
+     * @return the FEN position
      */
-    private ChessPosition findKing(TeamColor teamColor) {
-        ChessPiece king = new ChessPiece(teamColor, ChessPiece.PieceType.KING);
-        ChessPosition kingSpace = null;
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
 
-        // Iterates through every space on the chess board
-        for (int row = 1; row < 9; ++row) {
+        // Piece placement, from row 8 down to row 1
+        for (int row = 8; row > 0; --row) {
+            int emptySquares = 0;
             for (int col = 1; col < 9; ++col) {
-                ChessPosition possibleSpace = new ChessPosition(row, col);
-
-                // Ensures that a space is occupied and check if it is the correct king
-                if (PieceMoveLogic.spaceOccupied(gameBoard, possibleSpace)) {
-                    if (gameBoard.getPiece(possibleSpace).equals(king)) {
-                        kingSpace = possibleSpace;
+                ChessPiece piece = gameBoard.getPiece(ChessPosition.of(row, col));
+                if (piece == null) {
+                    ++emptySquares;
+                } else {
+                    if (emptySquares > 0) {
+                        fen.append(emptySquares);
+                        emptySquares = 0;
                     }
+                    fen.append(fenCharacter(piece));
                 }
             }
+            if (emptySquares > 0) {
+                fen.append(emptySquares);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(' ').append(turn == TeamColor.WHITE ? 'w' : 'b').append(' ');
+
+        int castlingRights = gameBoard.getCastlingRights();
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & ChessBoard.WHITE_KINGSIDE) != 0) { fen.append('K'); }
+            if ((castlingRights & ChessBoard.WHITE_QUEENSIDE) != 0) { fen.append('Q'); }
+            if ((castlingRights & ChessBoard.BLACK_KINGSIDE) != 0) { fen.append('k'); }
+            if ((castlingRights & ChessBoard.BLACK_QUEENSIDE) != 0) { fen.append('q'); }
+        }
+
+        ChessPosition enPassantTarget = gameBoard.getEnPassantTarget();
+        fen.append(' ');
+        if (enPassantTarget == null) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + enPassantTarget.getColumn() - 1)).append(enPassantTarget.getRow());
+        }
+
+        return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+
+    /**
+     * Gets the FEN letter of a piece: uppercase for white, lowercase for black
+     */
+    private static char fenCharacter(ChessPiece piece) {
+        char letter = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return (piece.getTeamColor() == TeamColor.WHITE) ? Character.toUpperCase(letter) : letter;
+    }
+
+    /**
+     * Gets the piece type of a FEN letter of either case
+     */
+    private static ChessPiece.PieceType fenPieceType(char letter, FenReader reader) {
+        return switch (Character.toLowerCase(letter)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw reader.invalid(String.format("unknown piece '%c'", letter));
+        };
+    }
+
+    /**
+     * Walks through a FEN string one character at a time
+     */
+    private static final class FenReader {
+        private static final char END = 0;
+
+        private final String fen;
+        private int index = 0;
+
+        private FenReader(String fen) {
+            this.fen = fen;
+        }
+
+        private boolean hasMore() {
+            return index < fen.length();
+        }
+
+        /**
+         * @return the next character, or END once the string is used up
+         */
+        private char next() {
+            return hasMore() ? fen.charAt(index++) : END;
+        }
+
+        private void back() {
+            --index;
+        }
+
+        private void expectSpace() {
+            if (next() != ' ') {
+                throw invalid("expected a space");
+            }
+        }
+
+        private int nextNumber() {
+            int value = 0;
+            int start = index;
+            while (hasMore() && fen.charAt(index) >= '0' && fen.charAt(index) <= '9') {
+                value = value * 10 + (fen.charAt(index++) - '0');
+            }
+            if (index == start) {
+                throw invalid("expected a number");
+            }
+            return value;
+        }
+
+        private IllegalArgumentException invalid(String reason) {
+            return new IllegalArgumentException(String.format("Invalid FEN \"%s\": %s", fen, reason));
         }
-        return kingSpace;
     }
 }
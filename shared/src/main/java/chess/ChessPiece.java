@@ -16,6 +16,43 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance of a chess piece
+     * Pieces are immutable, so the same instance can be used for every square holding one
+     *
+     * @param pieceColor the team the piece belongs to
+     * @param type the type of the piece
+     * @return one of the 12 canonical pieces
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return Canonical.PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
+    /**
+     * Gets the shared instance of a chess piece from its bitboard index
+     *
+     * @param index the piece index, as used by {@link ChessBoard}
+     * @return one of the 12 canonical pieces
+     */
+    static ChessPiece fromIndex(int index) {
+        return Canonical.PIECES[index];
+    }
+
+    /**
+     * Holds the canonical pieces, built the first time one is requested
+     */
+    private static final class Canonical {
+        private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+        static {
+            for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                for (PieceType type : PieceType.values()) {
+                    PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+                }
+            }
+        }
+    }
+
     /**
      * The various different chess piece options
      */
@@ -86,31 +123,48 @@ public class ChessPiece {
      * @return collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        return moveLogic().pieceMoves(board, myPosition, this);
+    }
+
+    /**
+     * Calculates all the positions a chess piece can move to, adding them to a
+     * caller-supplied collection instead of creating a new one
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
+     *
+     * @param board the current chess board
+     * @param myPosition the current position to check from
+     * @param moves the collection to add the moves to
+     */
+    public void pieceMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
+        moveLogic().pieceMoves(board, myPosition, this, moves);
+    }
+
+    /**
+     * Calculates all the moves a chess piece can make as packed moves, adding them to a
+     * caller-supplied move list
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
+     *
+     * @param board the current chess board
+     * @param mySquare the square index the piece is on
+     * @param moves the move list to add the moves to
+     */
+    public void pieceMoves(ChessBoard board, int mySquare, MoveList moves) {
+        moveLogic().pieceMoves(board, mySquare, this, moves);
+    }
+
+    /**
+     * @return the shared move logic for this piece's type
+     */
+    private PieceMoveLogic moveLogic() {
         return switch (type) {
-            case KING -> {
-                KingMoveLogic kingMove = new KingMoveLogic();
-                yield kingMove.pieceMoves(board, myPosition, this);
-            }
-            case QUEEN -> {
-                QueenMoveLogic queenMove = new QueenMoveLogic();
-                yield queenMove.pieceMoves(board, myPosition, this);
-            }
-            case BISHOP -> {
-                BishopMoveLogic bishopMove = new BishopMoveLogic();
-                yield bishopMove.pieceMoves(board, myPosition, this);
-            }
-            case KNIGHT -> {
-                KnightMoveLogic knightMove = new KnightMoveLogic();
-                yield knightMove.pieceMoves(board, myPosition, this);
-            }
-            case ROOK -> {
-                RookMoveLogic rookMove = new RookMoveLogic();
-                yield rookMove.pieceMoves(board, myPosition, this);
-            }
-            case PAWN -> {
-                PawnMoveLogic pawnMove = new PawnMoveLogic();
-                yield pawnMove.pieceMoves(board, myPosition, this);
-            }
+            case KING -> KingMoveLogic.INSTANCE;
+            case QUEEN -> QueenMoveLogic.INSTANCE;
+            case BISHOP -> BishopMoveLogic.INSTANCE;
+            case KNIGHT -> KnightMoveLogic.INSTANCE;
+            case ROOK -> RookMoveLogic.INSTANCE;
+            case PAWN -> PawnMoveLogic.INSTANCE;
         };
     }
 }
@@ -10,11 +10,44 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; ++square) {
+            POSITIONS[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance of a position
+     * Positions on the board come from a fixed set of 64, so no new object is created
+     *
+     * @param row the row, from 1 (bottom) to 8
+     * @param col the column, from 1 (left) to 8
+     * @return the canonical position, or a new one if the position is off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[(row - 1) * 8 + (col - 1)];
+    }
+
+    /**
+     * Gets the shared instance of a position from its bitboard square index
+     *
+     * @param square the square index, from 0 (a1) to 63 (h8)
+     * @return the canonical position
+     */
+    static ChessPosition fromSquare(int square) {
+        return POSITIONS[square];
+    }
+
     /**
      * Overrides the equals method to compare attributes of ChessPosition
      *
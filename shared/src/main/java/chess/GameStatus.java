@@ -0,0 +1,47 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * An immutable snapshot of a chess game's status for the team whose turn it is
+ * <p>
+ * Threefold repetition and the fifty-move rule only let a player claim a draw, while
+ * fivefold repetition and the seventy-five-move rule end the game on their own.
+ *
+ * @param teamTurn the team whose turn it is
+ * @param inCheck if the team to move is in check
+ * @param inCheckmate if the team to move is in checkmate
+ * @param inStalemate if the team to move is in stalemate
+ * @param threefoldRepetition if the position has occurred three times
+ * @param fiftyMoveRule if fifty moves by each team have passed without a capture or pawn move
+ * @param fivefoldRepetition if the position has occurred five times
+ * @param seventyFiveMoveRule if seventy-five moves by each team have passed without a capture or pawn move
+ * @param legalMoves every valid move available to the team to move
+ */
+public record GameStatus(ChessGame.TeamColor teamTurn, boolean inCheck, boolean inCheckmate, boolean inStalemate,
+                         boolean threefoldRepetition, boolean fiftyMoveRule, boolean fivefoldRepetition,
+                         boolean seventyFiveMoveRule, Collection<ChessMove> legalMoves) {
+
+    /**
+     * @return if the game has been drawn by stalemate, fivefold repetition, or the
+     * seventy-five-move rule, without either player claiming it
+     */
+    public boolean isDraw() {
+        return !inCheckmate && (inStalemate || fivefoldRepetition || seventyFiveMoveRule);
+    }
+
+    /**
+     * @return if the game is still going but either player may claim a draw by threefold
+     * repetition or the fifty-move rule
+     */
+    public boolean canClaimDraw() {
+        return !isGameOver() && (threefoldRepetition || fiftyMoveRule);
+    }
+
+    /**
+     * @return if the game has ended in checkmate or a draw
+     */
+    public boolean isGameOver() {
+        return inCheckmate || isDraw();
+    }
+}
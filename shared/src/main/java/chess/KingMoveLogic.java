@@ -1,26 +1,70 @@
 package chess;
 
-import java.util.Collection;
-
 /**
  * Establishes the logic of how a king moves
  */
 public class KingMoveLogic extends PieceMoveLogic {
 
     /**
-     * Calculates all the positions a king can move to
+     * The shared, stateless king move logic
+     */
+    public static final KingMoveLogic INSTANCE = new KingMoveLogic();
+
+    private KingMoveLogic() {
+    }
+
+    /**
+     * Calculates all the positions a king can move to, including castling
      * Does not take into account moves that are illegal due to leaving the king in
      * danger
      *
      * @param board the current chess board
-     * @param myPosition the king's position
-     * @return collection of valid moves
+     * @param mySquare the square index the king is on
+     * @param myPiece the king
+     * @param moves the move list to add the moves to
      */
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition, ChessPiece myPiece) {
-        // Directions a king can move
-        Direction[] possibleDirections = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT,
-        Direction.UP_AND_LEFT, Direction.UP_AND_RIGHT, Direction.DOWN_AND_LEFT, Direction.DOWN_AND_RIGHT};
-        return calculateValidMoves(possibleDirections, myPiece, myPosition, board);
+    public void pieceMoves(ChessBoard board, int mySquare, ChessPiece myPiece, MoveList moves) {
+        addMoves(board, myPiece, mySquare, Attacks.KING[mySquare], moves);
+        addCastlingMoves(board, mySquare, myPiece.getTeamColor(), moves);
+    }
+
+    /**
+     * Adds the castling moves a king can make
+     * A king can castle with a rook if neither has moved, the squares between them are
+     * empty, and the king is not in check and does not pass over an attacked square.
+     * Whether the king lands on an attacked square is left to the check filtering that
+     * every move goes through
+     *
+     * @param board the current chess board
+     * @param mySquare the square index the king is on
+     * @param color the king's team color
+     * @param moves the move list to add the moves to
+     */
+    private static void addCastlingMoves(ChessBoard board, int mySquare, ChessGame.TeamColor color, MoveList moves) {
+        // Black's rights are white's shifted up two bits
+        int kingside = ChessBoard.WHITE_KINGSIDE << (2 * color.ordinal());
+        int queenside = ChessBoard.WHITE_QUEENSIDE << (2 * color.ordinal());
+        int rights = board.getCastlingRights() & (kingside | queenside);
+        int homeSquare = (color == ChessGame.TeamColor.WHITE) ? 4 : 60;
+        if (rights == 0 || mySquare != homeSquare) {
+            return;
+        }
+        ChessGame.TeamColor enemy = (color == ChessGame.TeamColor.WHITE)
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if (board.isSquareAttacked(homeSquare, enemy)) {
+            return;
+        }
+        long rooks = board.pieceSet(color, ChessPiece.PieceType.ROOK);
+        long occupied = board.occupied();
+
+        if ((rights & kingside) != 0 && (rooks & (1L << (homeSquare + 3))) != 0
+                && (occupied & (3L << (homeSquare + 1))) == 0 && !board.isSquareAttacked(homeSquare + 1, enemy)) {
+            moves.add(Move.encode(homeSquare, homeSquare + 2, null, Move.CASTLE));
+        }
+        if ((rights & queenside) != 0 && (rooks & (1L << (homeSquare - 4))) != 0
+                && (occupied & (7L << (homeSquare - 3))) == 0 && !board.isSquareAttacked(homeSquare - 1, enemy)) {
+            moves.add(Move.encode(homeSquare, homeSquare - 2, null, Move.CASTLE));
+        }
     }
 }
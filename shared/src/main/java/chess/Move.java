@@ -0,0 +1,118 @@
+package chess;
+
+/**
+ * Packs a chess move into a single int so moves can be generated and stored without
+ * allocating a {@link ChessMove} for each one
+ * <p>
+ * The low 15 bits hold the move itself: the start square in bits 0-5, the end square
+ * in bits 6-11, and the promotion piece type's ordinal in bits 12-14 (0 when there is
+ * no promotion, since a pawn can never promote to a king). The bits above that are
+ * flags describing the move, which are informational and ignored when comparing moves.
+ * Squares are bitboard indexes as used by {@link ChessBoard}, from 0 (a1) to 63 (h8).
+ */
+public final class Move {
+
+    /**
+     * A value that is never a real move
+     */
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    /**
+     * The bits that identify a move, leaving out its flags
+     */
+    private static final int MOVE_MASK = 0x7FFF;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * Packs a move into an int
+     *
+     * @param startSquare the square the piece is moving from
+     * @param endSquare the square the piece is moving to
+     * @param promotionPiece the type to promote to, or null if not a promotion
+     * @param flags any of the move flags, combined with bitwise or
+     * @return the packed move
+     */
+    public static int encode(int startSquare, int endSquare, ChessPiece.PieceType promotionPiece, int flags) {
+        int promotion = (promotionPiece == null) ? 0 : promotionPiece.ordinal();
+        return startSquare | (endSquare << 6) | (promotion << 12) | flags;
+    }
+
+    /**
+     * @return the square the packed move starts from
+     */
+    public static int startSquare(int move) {
+        return move & 0x3F;
+    }
+
+    /**
+     * @return the square the packed move ends on
+     */
+    public static int endSquare(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the type of piece the packed move promotes to, or null if no promotion
+     */
+    public static ChessPiece.PieceType promotionPiece(int move) {
+        int promotion = (move >>> 12) & 0x7;
+        return (promotion == 0) ? null : TYPES[promotion];
+    }
+
+    /**
+     * @return if the packed move has every one of the given flags
+     */
+    public static boolean hasFlags(int move, int flags) {
+        return (move & flags) == flags;
+    }
+
+    /**
+     * Determines if two packed moves are the same move, ignoring their flags
+     *
+     * @return if the moves have the same squares and promotion piece
+     */
+    public static boolean sameMove(int first, int second) {
+        return ((first ^ second) & MOVE_MASK) == 0;
+    }
+
+    /**
+     * Packs a chess move into an int, without any flags
+     *
+     * @param move the chess move to pack
+     * @return the packed move
+     */
+    public static int fromChessMove(ChessMove move) {
+        return encode(ChessBoard.square(move.getStartPosition()), ChessBoard.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    /**
+     * Unpacks an int into a chess move
+     *
+     * @param move the packed move
+     * @return the equivalent chess move
+     */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.fromSquare(startSquare(move)), ChessPosition.fromSquare(endSquare(move)),
+                promotionPiece(move));
+    }
+
+    /**
+     * Formats a packed move the same way as {@link ChessMove#toString()}
+     *
+     * @param move the packed move
+     * @return a string of the start position, end position, and promotion piece, if applicable
+     */
+    public static String toString(int move) {
+        return toChessMove(move).toString();
+    }
+}
@@ -0,0 +1,184 @@
+package chess;
+
+/**
+ * Generates legal moves directly, without making each move to see if it leaves the king
+ * in check
+ * <p>
+ * Before generating, the king's checkers and the team's pinned pieces are found once.
+ * A piece that is not the king may then only move onto a square that captures or blocks
+ * a lone checker, and a pinned piece may only move along the line through its king and
+ * the pinning piece. In double check only the king may move. The king may only move to a
+ * square that no enemy piece would attack once the king has left its square, so that it
+ * cannot step back along the line of a checking slider. En passant captures, which can
+ * remove two pieces from one rank at once, are rare enough to still be checked by making
+ * the move.
+ * <p>
+ * A team without a king on the board has nothing to protect, so all of its moves are legal.
+ */
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds every legal move of a team to a move list
+     *
+     * @param board the current chess board
+     * @param color the team to generate moves for
+     * @param moves the move list to add the moves to
+     */
+    public static void legalMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        generate(board, color, board.occupancy(color), moves, false);
+    }
+
+    /**
+     * Adds every legal move of the piece on one square to a move list
+     *
+     * @param board the current chess board
+     * @param square the square index of the piece to generate moves for
+     * @param moves the move list to add the moves to
+     */
+    public static void legalMoves(ChessBoard board, int square, MoveList moves) {
+        int index = board.pieceIndexAt(square);
+        if (index >= 0) {
+            generate(board, ChessPiece.fromIndex(index).getTeamColor(), 1L << square, moves, false);
+        }
+    }
+
+    /**
+     * Determines if a team has any legal move, stopping at the first piece that has one
+     *
+     * @param board the current chess board
+     * @param color the team to check
+     * @param scratch a move list to generate into, which is cleared first
+     * @return if the team has at least one legal move
+     */
+    public static boolean hasLegalMove(ChessBoard board, ChessGame.TeamColor color, MoveList scratch) {
+        scratch.clear();
+        generate(board, color, board.occupancy(color), scratch, true);
+        return !scratch.isEmpty();
+    }
+
+    /**
+     * Generates the legal moves of a team's pieces on the given squares
+     *
+     * @param board the current chess board
+     * @param color the team making the moves
+     * @param fromSquares the bitboard of squares whose pieces should move
+     * @param moves the move list to add the moves to
+     * @param stopAtFirst if generation may stop after the first piece with a legal move
+     */
+    private static void generate(ChessBoard board, ChessGame.TeamColor color, long fromSquares, MoveList moves,
+                                 boolean stopAtFirst) {
+        fromSquares &= board.occupancy(color);
+        int kingSquare = board.kingSquare(color);
+        if (kingSquare < 0) {
+            for (; fromSquares != 0; fromSquares &= fromSquares - 1) {
+                int square = Long.numberOfTrailingZeros(fromSquares);
+                ChessPiece.fromIndex(board.pieceIndexAt(square)).pieceMoves(board, square, moves);
+                if (stopAtFirst && !moves.isEmpty()) { return; }
+            }
+            return;
+        }
+
+        ChessGame.TeamColor enemy = opponent(color);
+        long checkers = board.attackersOf(kingSquare, enemy);
+        long pinned = pinnedPieces(board, color, enemy, kingSquare);
+
+        // The squares a piece other than the king must move to: anywhere when not in check,
+        // onto or in front of a lone checker, and nowhere in double check
+        long checkMask;
+        if (checkers == 0) {
+            checkMask = ~0L;
+        } else if ((checkers & (checkers - 1)) == 0) {
+            checkMask = checkers | Attacks.BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)];
+        } else {
+            checkMask = 0;
+            fromSquares &= 1L << kingSquare;
+        }
+
+        for (; fromSquares != 0; fromSquares &= fromSquares - 1) {
+            int square = Long.numberOfTrailingZeros(fromSquares);
+            int first = moves.size();
+            ChessPiece.fromIndex(board.pieceIndexAt(square)).pieceMoves(board, square, moves);
+            if (square == kingSquare) {
+                keepSafeKingMoves(board, enemy, kingSquare, moves, first);
+            } else {
+                long allowed = checkMask;
+                if ((pinned & (1L << square)) != 0) {
+                    allowed &= Attacks.LINE[kingSquare][square];
+                }
+                keepAllowedMoves(board, color, allowed, moves, first);
+            }
+            if (stopAtFirst && !moves.isEmpty()) { return; }
+        }
+    }
+
+    /**
+     * Finds the pieces of a team that are pinned to their king: those standing alone
+     * between the king and an enemy slider that would otherwise attack it
+     */
+    private static long pinnedPieces(ChessBoard board, ChessGame.TeamColor color, ChessGame.TeamColor enemy,
+                                     int kingSquare) {
+        long queens = board.pieceSet(enemy, ChessPiece.PieceType.QUEEN);
+        long snipers = (Attacks.rook(kingSquare, 0) & (board.pieceSet(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (Attacks.bishop(kingSquare, 0) & (board.pieceSet(enemy, ChessPiece.PieceType.BISHOP) | queens));
+        long occupied = board.occupied();
+        long friends = board.occupancy(color);
+        long pinned = 0;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Attacks.BETWEEN[kingSquare][Long.numberOfTrailingZeros(snipers)] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & friends;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Keeps the king moves that do not land on an attacked square, compacting the list in
+     * place. The king is lifted off the board first so it cannot shield its own escape
+     * square from a slider. Castling moves have already been checked for the king's
+     * starting and passing squares
+     */
+    private static void keepSafeKingMoves(ChessBoard board, ChessGame.TeamColor enemy, int kingSquare,
+                                          MoveList moves, int first) {
+        long occupied = board.occupied() & ~(1L << kingSquare);
+        int kept = first;
+        for (int i = first; i < moves.size(); ++i) {
+            int move = moves.get(i);
+            if (!board.isSquareAttacked(Move.endSquare(move), enemy, occupied)) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    /**
+     * Keeps the moves that end on an allowed square, compacting the list in place
+     * En passant captures are instead made and tested, since they empty two squares
+     */
+    private static void keepAllowedMoves(ChessBoard board, ChessGame.TeamColor color, long allowed,
+                                         MoveList moves, int first) {
+        int kept = first;
+        for (int i = first; i < moves.size(); ++i) {
+            int move = moves.get(i);
+            boolean legal;
+            if (Move.hasFlags(move, Move.EN_PASSANT)) {
+                board.makeMove(move);
+                legal = !board.isSquareAttacked(board.kingSquare(color), opponent(color));
+                board.unmakeMove();
+            } else {
+                legal = (allowed & (1L << Move.endSquare(move))) != 0;
+            }
+            if (legal) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
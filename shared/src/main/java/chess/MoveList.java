@@ -0,0 +1,138 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A reusable, growable list of moves packed with {@link Move}
+ * Clearing the list keeps its storage, so the same list can be filled over and over
+ * without allocating
+ */
+public class MoveList {
+
+    private int[] moves;
+    private int size = 0;
+
+    public MoveList() {
+        this(64);
+    }
+
+    /**
+     * @param capacity the number of moves to make room for up front
+     */
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds a packed move to the end of the list
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * @param index the index of the move
+     * @return the packed move at that index
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for size %d", index, size));
+        }
+        return moves[index];
+    }
+
+    /**
+     * Replaces the packed move at an index
+     *
+     * @param index the index of the move
+     * @param move the new packed move
+     */
+    public void set(int index, int move) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for size %d", index, size));
+        }
+        moves[index] = move;
+    }
+
+    /**
+     * @return the number of moves in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return if the list holds no moves
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every move, keeping the list's storage for reuse
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Shortens the list, dropping every move at or past the new size
+     *
+     * @param newSize the number of moves to keep
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException(String.format("Size %d out of bounds for size %d", newSize, size));
+        }
+        size = newSize;
+    }
+
+    /**
+     * Determines if the list holds a move, ignoring move flags
+     *
+     * @param move the packed move to look for
+     * @return if an equivalent move is in the list
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; ++i) {
+            if (Move.sameMove(moves[i], move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unpacks every move in the list into chess moves
+     *
+     * @param destination the collection to add the chess moves to
+     */
+    public void addTo(Collection<ChessMove> destination) {
+        for (int i = 0; i < size; ++i) {
+            destination.add(Move.toChessMove(moves[i]));
+        }
+    }
+
+    /**
+     * Overrides the toString method to print every move in the list
+     *
+     * @return a string of the moves in the list
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(Move.toString(moves[i]));
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -1,13 +1,24 @@
 package chess;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  * Establishes the logic of how a pawn moves
  */
 public class PawnMoveLogic extends PieceMoveLogic {
 
+    /**
+     * The shared, stateless pawn move logic
+     */
+    public static final PawnMoveLogic INSTANCE = new PawnMoveLogic();
+
+    /**
+     * The pieces a pawn can promote to
+     */
+    private static final ChessPiece.PieceType[] PROMOTIONS = {ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+
+    private PawnMoveLogic() {
+    }
+
     /**
      * Determines if a pawn has moved
      *
@@ -15,7 +26,7 @@ public class PawnMoveLogic extends PieceMoveLogic {
      * @param startRow the row the pawn is at
      * @return if the pawn is taking its first move
      */
-    private boolean firstMove(ChessPiece myPiece, int startRow) {
+    private static boolean firstMove(ChessPiece myPiece, int startRow) {
         return (myPiece.getTeamColor() == ChessGame.TeamColor.WHITE && startRow == 2)
                 || (myPiece.getTeamColor() == ChessGame.TeamColor.BLACK && startRow == 7);
     }
@@ -27,150 +38,89 @@ public class PawnMoveLogic extends PieceMoveLogic {
      * @param newRow the row the pawn is moving to
      * @return if the pawn is moving to a promotion square
      */
-    private boolean promotionSquare(ChessPiece myPiece, int newRow) {
+    private static boolean promotionSquare(ChessPiece myPiece, int newRow) {
         return (myPiece.getTeamColor() == ChessGame.TeamColor.WHITE && newRow == 8)
                 || (myPiece.getTeamColor() == ChessGame.TeamColor.BLACK && newRow == 1);
     }
 
     /**
-     * Compiles all possible promotions into a ChessMove array
+     * Determines if an en passant target was skipped by an enemy pawn, rather than by one
+     * of the pawn's own team
      *
-     * @param myPosition the position the pawn is at
-     * @param endPosition the position the pawn is moving to
-     * @return a collection of all possible promotions
+     * @param myPiece the pawn
+     * @param targetRow the row of the en passant target
+     * @return if the pawn could capture en passant onto the target's row
      */
-    private Collection<ChessMove> addAllPromotions(ChessPosition myPosition, ChessPosition endPosition) {
-        ArrayList<ChessMove> promotions = new ArrayList<>();
-        promotions.add(new ChessMove(myPosition, endPosition, ChessPiece.PieceType.QUEEN));
-        promotions.add(new ChessMove(myPosition, endPosition, ChessPiece.PieceType.ROOK));
-        promotions.add(new ChessMove(myPosition, endPosition, ChessPiece.PieceType.BISHOP));
-        promotions.add(new ChessMove(myPosition, endPosition, ChessPiece.PieceType.KNIGHT));
-
-        return promotions;
+    private static boolean enPassantRow(ChessPiece myPiece, int targetRow) {
+        return (myPiece.getTeamColor() == ChessGame.TeamColor.WHITE && targetRow == 6)
+                || (myPiece.getTeamColor() == ChessGame.TeamColor.BLACK && targetRow == 3);
     }
 
     /**
-     * Determines if a pawn can move forward
+     * Adds a pawn move, expanding it into every possible promotion if needed
      *
-     * @param board the current chess board
-     * @param startRow the row the pawn is at
-     * @param startCol the column the pawn is at
-     * @param myPosition the pawn's current position
      * @param myPiece the pawn
-     * @param path the direction of interest
-     * @return collection of legal forward moves
+     * @param mySquare the square index the pawn is on
+     * @param endSquare the square index the pawn is moving to
+     * @param flags the move flags
+     * @param moves the move list to add the moves to
      */
-    private Collection<ChessMove> testMove(ChessBoard board, int startRow, int startCol,
-                                            ChessPosition myPosition, ChessPiece myPiece, Direction path) {
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        int rowIncrement;
-        int rowIncrementFirst;
-
-        // Determine move direction
-        if (path == Direction.UP) {
-            rowIncrement = 1;
-            rowIncrementFirst = 2;
-        } else if (path == Direction.DOWN) {
-            rowIncrement = -1;
-            rowIncrementFirst = -2;
-        } else {
-            throw new RuntimeException("A pawn cannot move in that direction!");
-        }
-
-        int newRow = startRow + rowIncrement;
-        ChessPosition newPosition = new ChessPosition(newRow, startCol);
-        // Check square directly ahead
-        if (!spaceOccupied(board, newPosition)) {
-            // Check if promotion square
-            if (promotionSquare(myPiece, newRow)) {
-                moves.addAll(addAllPromotions(myPosition, newPosition));
-            } else {
-                moves.add(new ChessMove(myPosition, newPosition, null));
-            }
-            // Check if first move
-            if (firstMove(myPiece, startRow)) {
-                int firstMoveRow = startRow + rowIncrementFirst;
-                ChessPosition firstMovePosition = new ChessPosition(firstMoveRow, startCol);
-                // Check square two squares ahead
-                if (!spaceOccupied(board, firstMovePosition)) {
-                    moves.add(new ChessMove(myPosition, firstMovePosition, null));
-                }
+    private static void addMove(ChessPiece myPiece, int mySquare, int endSquare, int flags, MoveList moves) {
+        if (promotionSquare(myPiece, endSquare / 8 + 1)) {
+            for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                moves.add(Move.encode(mySquare, endSquare, promotion, flags));
             }
+        } else {
+            moves.add(Move.encode(mySquare, endSquare, null, flags));
         }
-        return moves;
     }
 
     /**
-     * Determines if a pawn can attack
+     * Calculates all the positions a pawn can move to, including en passant captures
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
      *
      * @param board the current chess board
-     * @param startRow the row the pawn is at
-     * @param startCol the column the pawn is at
-     * @param myPosition the pawn's current position
+     * @param mySquare the square index the pawn is on
      * @param myPiece the pawn
-     * @param path the direction of interest
-     * @return collection of legal attacking moves
+     * @param moves the move list to add the moves to
      */
-    private Collection<ChessMove> testAttack(ChessBoard board, int startRow, int startCol,
-                                   ChessPosition myPosition, ChessPiece myPiece, Direction path) {
-        ArrayList<ChessMove> attacks = new ArrayList<>();
-        int[] increments = setIncrements(path, myPiece);
-        int rowIncrement = increments[0];
-        int colIncrement = increments[1];
+    @Override
+    public void pieceMoves(ChessBoard board, int mySquare, ChessPiece myPiece, MoveList moves) {
+        int startRow = mySquare / 8 + 1;
+        int startCol = mySquare % 8 + 1;
+        int rowIncrement = (myPiece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 1 : -1;
+        int newRow = startRow + rowIncrement;
+        if (!onBoard(newRow, startCol)) {
+            return;
+        }
+        long occupied = board.occupied();
+        long enemies = occupied & ~board.occupancy(myPiece.getTeamColor());
 
-        int attackRow = startRow + rowIncrement;
-        int attackCol = startCol + colIncrement;
-        ChessPosition attackPosition = new ChessPosition(attackRow, attackCol);
-        // Check if enemy piece is in attack position
-        if (onBoard(attackRow, attackCol)) {
-            if (spaceOccupied(board, attackPosition) && !friendlyFire(board, attackPosition, myPiece)) {
-                // Check if promotion square
-                if (promotionSquare(myPiece, attackRow)) {
-                    attacks.addAll(addAllPromotions(myPosition, attackPosition));
-                } else {
-                    attacks.add(new ChessMove(myPosition, attackPosition, null));
+        // Check square directly ahead
+        int newSquare = mySquare + rowIncrement * 8;
+        if ((occupied & (1L << newSquare)) == 0) {
+            addMove(myPiece, mySquare, newSquare, 0, moves);
+            // Check square two squares ahead if this is the pawn's first move
+            if (firstMove(myPiece, startRow)) {
+                int firstMoveSquare = newSquare + rowIncrement * 8;
+                if ((occupied & (1L << firstMoveSquare)) == 0) {
+                    moves.add(Move.encode(mySquare, firstMoveSquare, null, Move.DOUBLE_PUSH));
                 }
             }
         }
-        return attacks;
-    }
-
-    /**
-     * Calculates all the positions a pawn can move to
-     * Does not take into account moves that are illegal due to leaving the king in
-     * danger
-     *
-     * @param board the current chess board
-     * @param myPosition the pawn's position
-     * @return collection of valid moves
-     */
-    @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition, ChessPiece myPiece) {
-        ArrayList<ChessMove> validMoves = new ArrayList<>();
-        int startPositionRow = myPosition.getRow();
-        int startPositionCol = myPosition.getColumn();
 
-        // Check moves
-        if (myPiece.getTeamColor() == ChessGame.TeamColor.WHITE) {
-            validMoves.addAll(testMove(board, startPositionRow, startPositionCol,
-                    myPosition, myPiece, Direction.UP));
-        } else if (myPiece.getTeamColor() == ChessGame.TeamColor.BLACK) {
-            validMoves.addAll(testMove(board, startPositionRow, startPositionCol,
-                    myPosition, myPiece, Direction.DOWN));
+        // Check if an enemy piece is in either attack position
+        long attacks = Attacks.PAWN[myPiece.getTeamColor().ordinal()][mySquare];
+        for (long captures = attacks & enemies; captures != 0; captures &= captures - 1) {
+            addMove(myPiece, mySquare, Long.numberOfTrailingZeros(captures), Move.CAPTURE, moves);
         }
 
-        // Check attacks
-        if (myPiece.getTeamColor() == ChessGame.TeamColor.WHITE) {
-            validMoves.addAll(testAttack(board, startPositionRow, startPositionCol,
-                    myPosition, myPiece, Direction.UP_AND_LEFT));
-            validMoves.addAll(testAttack(board, startPositionRow, startPositionCol,
-                    myPosition, myPiece, Direction.UP_AND_RIGHT));
-        } else if (myPiece.getTeamColor() == ChessGame.TeamColor.BLACK) {
-            validMoves.addAll(testAttack(board, startPositionRow, startPositionCol,
-                    myPosition, myPiece, Direction.DOWN_AND_LEFT));
-            validMoves.addAll(testAttack(board, startPositionRow, startPositionCol,
-                    myPosition, myPiece, Direction.DOWN_AND_RIGHT));
+        // Capture en passant if an enemy pawn just skipped over an attacked square
+        int enPassantSquare = board.enPassantSquare();
+        if (enPassantSquare >= 0 && (attacks & (1L << enPassantSquare)) != 0
+                && enPassantRow(myPiece, enPassantSquare / 8 + 1)) {
+            moves.add(Move.encode(mySquare, enPassantSquare, null, Move.CAPTURE | Move.EN_PASSANT));
         }
-        return validMoves;
     }
 }
@@ -0,0 +1,142 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the positions reachable from a chess game in an exact number of moves (perft)
+ * <p>
+ * Comparing the counts against published reference values verifies move generation,
+ * and timing the count measures how fast moves are generated, made, and taken back.
+ * Run it directly with a depth and an optional FEN position to print node counts and
+ * nodes per second, or add "divide" to break the count down by first move.
+ */
+public class Perft {
+
+    /**
+     * The FEN of the default starting position
+     */
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private final ChessGame game;
+    private MoveList[] moveLists = new MoveList[0];
+
+    /**
+     * @param game the game to count positions from, which is restored after every count
+     */
+    public Perft(ChessGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Counts the positions reachable in exactly the given number of moves
+     *
+     * @param depth the number of moves to look ahead
+     * @return the number of leaf positions
+     */
+    public long perft(int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        ensureDepth(depth);
+        return count(depth);
+    }
+
+    /**
+     * Counts the positions reachable in exactly the given number of moves, split by the
+     * first move made
+     *
+     * @param depth the number of moves to look ahead
+     * @return the number of leaf positions below each valid first move
+     */
+    public Map<ChessMove, Long> divide(int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        if (depth <= 0) {
+            return counts;
+        }
+        ensureDepth(depth);
+        MoveList moves = moveLists[depth - 1];
+        moves.clear();
+        game.collectValidMoves(game.getTeamTurn(), moves);
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = moves.get(i);
+            makeMove(move);
+            counts.put(Move.toChessMove(move), (depth == 1) ? 1 : count(depth - 1));
+            unmakeMove();
+        }
+        return counts;
+    }
+
+    private long count(int depth) {
+        MoveList moves = moveLists[depth - 1];
+        moves.clear();
+        game.collectValidMoves(game.getTeamTurn(), moves);
+        // Every valid move at the last level is a leaf, so there is no need to make them
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            makeMove(moves.get(i));
+            nodes += count(depth - 1);
+            unmakeMove();
+        }
+        return nodes;
+    }
+
+    private void makeMove(int move) {
+        game.getBoard().makeMove(move);
+        game.switchTurn();
+    }
+
+    private void unmakeMove() {
+        game.getBoard().unmakeMove();
+        game.switchTurn();
+    }
+
+    private void ensureDepth(int depth) {
+        if (moveLists.length < depth) {
+            MoveList[] newLists = new MoveList[depth];
+            System.arraycopy(moveLists, 0, newLists, 0, moveLists.length);
+            for (int i = moveLists.length; i < depth; ++i) {
+                newLists[i] = new MoveList();
+            }
+            moveLists = newLists;
+        }
+    }
+
+    /**
+     * Prints perft counts and speed for every depth up to the one requested
+     *
+     * @param args the maximum depth, then optionally a FEN position and "divide"
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: Perft <depth> [fen] [divide]");
+            return;
+        }
+        int maxDepth = Integer.parseInt(args[0]);
+        String fen = (args.length > 1 && !args[1].equals("divide")) ? args[1] : START_POSITION;
+        boolean divide = args[args.length - 1].equals("divide");
+        Perft perft = new Perft(ChessGame.fromFen(fen));
+
+        if (divide) {
+            long total = 0;
+            for (Map.Entry<ChessMove, Long> entry : perft.divide(maxDepth).entrySet()) {
+                System.out.printf("%s: %d%n", entry.getKey(), entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.printf("Total: %d%n", total);
+            return;
+        }
+
+        for (int depth = 1; depth <= maxDepth; ++depth) {
+            long start = System.nanoTime();
+            long nodes = perft.perft(depth);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            System.out.printf("Depth %d: %d nodes in %.3f s (%.0f nodes/s)%n", depth, nodes, elapsed / 1e9,
+                    nodes * 1e9 / elapsed);
+        }
+    }
+}
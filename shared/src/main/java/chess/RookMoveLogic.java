@@ -1,25 +1,30 @@
 package chess;
 
-import java.util.Collection;
-
 /**
  * Establishes the logic of how a rook moves
  */
 public class RookMoveLogic extends PieceMoveLogic {
 
+    /**
+     * The shared, stateless rook move logic
+     */
+    public static final RookMoveLogic INSTANCE = new RookMoveLogic();
+
+    private RookMoveLogic() {
+    }
+
     /**
      * Calculates all the positions a rook can move to
      * Does not take into account moves that are illegal due to leaving the king in
      * danger
      *
      * @param board the current chess board
-     * @param myPosition the rook's position
-     * @return collection of valid moves
+     * @param mySquare the square index the rook is on
+     * @param myPiece the rook
+     * @param moves the move list to add the moves to
      */
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition, ChessPiece myPiece) {
-        // Directions a rook can move
-        Direction[] possibleDirections = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
-        return calculateValidMoves(possibleDirections, myPiece, myPosition, board);
+    public void pieceMoves(ChessBoard board, int mySquare, ChessPiece myPiece, MoveList moves) {
+        addMoves(board, myPiece, mySquare, Attacks.rook(mySquare, board.occupied()), moves);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package chess;
+
+/**
+ * The SplitMix64 random number generator, for the tables built once when the program
+ * starts
+ * <p>
+ * It is fast and deterministic: the same seed always gives the same sequence, so tables
+ * built from it are identical in every run.
+ */
+final class SplitMix64 {
+
+    private long state;
+
+    /**
+     * @param seed the starting state
+     */
+    SplitMix64(long seed) {
+        state = seed;
+    }
+
+    /**
+     * @return the next random number
+     */
+    long next() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
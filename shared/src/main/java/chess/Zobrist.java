@@ -0,0 +1,46 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing of chess positions
+ * <p>
+ * A position's key is the exclusive or of one key per piece on the board, one key for
+ * the combination of castling rights, one key for the column of any en passant target,
+ * plus a key when black is to move. Because exclusive or is its own inverse, adding or removing a
+ * piece updates the key with a single operation. The keys come from a fixed seed, so
+ * the same position has the same key in every run.
+ */
+final class Zobrist {
+
+    /**
+     * Keys indexed by piece bitboard index, then square
+     */
+    static final long[][] PIECE_SQUARE = new long[ChessBoard.PIECE_COUNT][64];
+    static final long BLACK_TO_MOVE;
+    /**
+     * Keys indexed by castling rights, with no rights hashing to 0
+     */
+    static final long[] CASTLING = new long[ChessBoard.ALL_CASTLING + 1];
+    /**
+     * Keys indexed by the column (0-7) of the en passant target square
+     */
+    static final long[] EN_PASSANT = new long[8];
+
+    static {
+        SplitMix64 random = new SplitMix64(0x2545F4914F6CDD1DL);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; ++square) {
+                squares[square] = random.next();
+            }
+        }
+        BLACK_TO_MOVE = random.next();
+        for (int rights = 1; rights < CASTLING.length; ++rights) {
+            CASTLING[rights] = random.next();
+        }
+        for (int col = 0; col < EN_PASSANT.length; ++col) {
+            EN_PASSANT[col] = random.next();
+        }
+    }
+
+    private Zobrist() {
+    }
+}
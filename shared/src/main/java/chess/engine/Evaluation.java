@@ -0,0 +1,38 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+/**
+ * Scores chess positions for the search by material and piece placement
+ * <p>
+ * The board keeps running middlegame and endgame totals of its pieces' material and
+ * piece-square scores, updated as pieces are placed, moved, and captured, so scoring a
+ * position never scans the board. The two totals are blended by the game phase: with all
+ * the pieces on the board the middlegame score counts fully, and it fades into the
+ * endgame score as queens, rooks, and minor pieces come off.
+ */
+public final class Evaluation {
+
+    /**
+     * Material values in centipawns, indexed by piece type ordinal, for ordering captures
+     */
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Evaluation() {
+    }
+
+    /**
+     * Scores a position from the point of view of the team to move
+     *
+     * @param board the board to score
+     * @param teamToMove the team whose turn it is
+     * @return the score in centipawns, positive when the team to move is better off
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor teamToMove) {
+        int phase = Math.min(board.phase(), ChessBoard.MAX_PHASE);
+        int score = (board.midgameScore() * phase + board.endgameScore() * (ChessBoard.MAX_PHASE - phase))
+                / ChessBoard.MAX_PHASE;
+        return (teamToMove == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+}
@@ -0,0 +1,177 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Reads moves from a Polyglot opening book
+ * <p>
+ * A book is a file of 16-byte big-endian entries sorted by position key: the key, the
+ * move, its weight, and 4 bytes of learning data that are ignored here. The file is
+ * memory-mapped rather than read, so opening even a large book is instant, its pages are
+ * loaded only as lookups touch them, and every book opened on the same file shares one
+ * copy in the operating system's page cache instead of on the heap. A lookup is a binary
+ * search for the first entry with the position's key, followed by a scan of the entries
+ * after it.
+ * <p>
+ * A book is immutable once opened and can be shared by any number of threads.
+ */
+public final class OpeningBook {
+
+    private static final int ENTRY_BYTES = 16;
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+
+    /**
+     * A move the book suggests
+     *
+     * @param move the move
+     * @param weight how often the move should be chosen relative to the position's other
+     *               book moves
+     */
+    public record BookMove(ChessMove move, int weight) {
+    }
+
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+    private final PolyglotKeys keys;
+
+    private OpeningBook(MappedByteBuffer entries, PolyglotKeys keys) {
+        this.entries = entries;
+        this.entryCount = entries.capacity() / ENTRY_BYTES;
+        this.keys = keys;
+    }
+
+    /**
+     * Opens a Polyglot book file
+     *
+     * @param file the book to open
+     * @param keys the key table the book was built with
+     * @return the book
+     * @throws IOException if the file cannot be mapped or is not a whole number of entries
+     */
+    public static OpeningBook open(Path file, PolyglotKeys keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), keys);
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Looks up the book moves for a game's current position, leaving out any that are not
+     * legal in the position
+     *
+     * @param game the game to look up
+     * @return the book moves, empty if the position is not in the book
+     */
+    public List<BookMove> lookup(ChessGame game) {
+        long key = keys.hash(game);
+        List<BookMove> moves = new ArrayList<>();
+        Collection<ChessMove> legalMoves = game.legalMoves();
+        for (int entry = firstEntry(key); entry < entryCount && keyAt(entry) == key; ++entry) {
+            int offset = entry * ENTRY_BYTES;
+            ChessMove move = decodeMove(game, entries.getShort(offset + 8) & 0xFFFF);
+            int weight = entries.getShort(offset + 10) & 0xFFFF;
+            if (legalMoves.contains(move)) {
+                moves.add(new BookMove(move, weight));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Picks a book move for a game's current position, at random in proportion to the
+     * moves' weights
+     *
+     * @param game the game to pick a move for
+     * @param random the source of randomness
+     * @return the move, or null if the position is not in the book or all its moves have
+     * no weight
+     */
+    public ChessMove pickMove(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = lookup(game);
+        int totalWeight = 0;
+        for (BookMove move : moves) {
+            totalWeight += move.weight();
+        }
+        if (totalWeight == 0) {
+            return null;
+        }
+        int choice = random.nextInt(totalWeight);
+        for (BookMove move : moves) {
+            choice -= move.weight();
+            if (choice < 0) {
+                return move.move();
+            }
+        }
+        throw new IllegalStateException("Weighted choice fell through");
+    }
+
+    private long keyAt(int entry) {
+        return entries.getLong(entry * ENTRY_BYTES);
+    }
+
+    /**
+     * Binary searches for the first entry with a key
+     *
+     * @return the index of the first entry whose key is not below the given key, compared unsigned
+     */
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decodes a Polyglot move: the end column and row in bits 0-5, the start column and row
+     * in bits 6-11, and the promotion piece in bits 12-14. Castling is written as the king
+     * capturing its own rook, so it is translated to the king's actual move
+     */
+    private static ChessMove decodeMove(ChessGame game, int move) {
+        int endColumn = (move & 7) + 1;
+        int endRow = ((move >>> 3) & 7) + 1;
+        int startColumn = ((move >>> 6) & 7) + 1;
+        int startRow = ((move >>> 9) & 7) + 1;
+        int promotion = (move >>> 12) & 7;
+
+        ChessPosition start = ChessPosition.of(startRow, startColumn);
+        ChessPiece piece = game.getBoard().getPiece(start);
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && startColumn == 5
+                && startRow == endRow && (endColumn == 1 || endColumn == 8)) {
+            endColumn = (endColumn == 8) ? 7 : 3;
+        }
+        return new ChessMove(start, ChessPosition.of(endRow, endColumn),
+                (promotion < PROMOTIONS.length) ? PROMOTIONS[promotion] : null);
+    }
+}
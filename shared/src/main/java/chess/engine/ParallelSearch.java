@@ -0,0 +1,178 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches with several threads at once (Lazy SMP)
+ * <p>
+ * Every thread runs its own iterative-deepening {@link Search} of the same root, and all
+ * of them share one {@link TranspositionTable}. The threads never coordinate directly:
+ * whatever one of them stores in the table, the others pick up as move ordering and
+ * cutoffs. Half of the helper threads start one ply deeper than the main thread, so the
+ * threads drift apart and spend less time searching the same nodes in the same order.
+ * <p>
+ * The main thread runs on the caller and alone obeys the node limit. When it finishes,
+ * the helpers are stopped and the result of the deepest completed iteration is returned,
+ * with the nodes of every thread counted. The helper threads are kept between searches,
+ * so close the search when done with it.
+ */
+public class ParallelSearch implements AutoCloseable {
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService helpers;
+
+    /**
+     * Creates a search with its own transposition table of the default size
+     *
+     * @param threads the number of threads to search with, at least 1
+     */
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(Search.DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * Creates a search whose threads share a given transposition table
+     *
+     * @param threads the number of threads to search with, at least 1
+     * @param table the transposition table to use
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least 1 thread");
+        }
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; ++i) {
+            searches[i] = new Search(table);
+        }
+        helpers = (threads == 1) ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the number of threads this searches with
+     */
+    public int threads() {
+        return searches.length;
+    }
+
+    /**
+     * @return the transposition table the threads share
+     */
+    public TranspositionTable table() {
+        return table;
+    }
+
+    /**
+     * Sets the tablebases every thread looks up positions with few pieces in
+     *
+     * @param tablebases the tablebases, or null to search every position
+     */
+    public void setTablebases(Tablebases tablebases) {
+        for (Search search : searches) {
+            search.setTablebases(tablebases);
+        }
+    }
+
+    /**
+     * Searches a game's current position for the team whose turn it is
+     * The game itself is not changed, and must not be changed until the search returns
+     *
+     * @param game the game to search
+     * @param limits when to stop searching
+     * @return the best move found and how it was found
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        table.newSearch();
+
+        // Only the main thread counts toward the node limit
+        SearchLimits helperLimits = limits.withNodes(Long.MAX_VALUE);
+        List<Future<SearchResult>> helperResults = new ArrayList<>(searches.length - 1);
+        for (int i = 1; i < searches.length; ++i) {
+            Search helper = searches[i];
+            int firstDepth = Math.min(1 + (i & 1), limits.depth());
+            helperResults.add(helpers.submit(() -> helper.search(game, helperLimits, firstDepth)));
+        }
+
+        SearchResult result;
+        List<SearchResult> helped = new ArrayList<>(helperResults.size());
+        try {
+            result = searches[0].search(game, limits, 1);
+        } finally {
+            for (int i = 1; i < searches.length; ++i) {
+                searches[i].stop();
+            }
+            for (Future<SearchResult> helperResult : helperResults) {
+                SearchResult helperSearch = await(helperResult);
+                if (helperSearch != null) {
+                    helped.add(helperSearch);
+                }
+            }
+            // Cleared afterward rather than before, so a stop that races the start still counts
+            for (Search search : searches) {
+                search.clearStop();
+            }
+        }
+
+        SearchResult best = result;
+        long nodes = result.nodes();
+        SearchResult.TableStatistics tableStatistics = result.tableStatistics();
+        for (SearchResult helperSearch : helped) {
+            nodes += helperSearch.nodes();
+            tableStatistics = tableStatistics.plus(helperSearch.tableStatistics());
+            if (helperSearch.depth() > best.depth() && helperSearch.bestMove() != null) {
+                best = helperSearch;
+            }
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, result.millis(),
+                best.principalVariation(), tableStatistics);
+    }
+
+    /**
+     * Waits for a helper to finish
+     *
+     * @return the helper's result, or null if the calling thread was interrupted
+     */
+    private static SearchResult await(Future<SearchResult> helperResult) {
+        try {
+            return helperResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible, returning the best move found so far
+     * Safe to call from any thread
+     */
+    public void stop() {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Stops the helper threads
+     */
+    @Override
+    public void close() {
+        stop();
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+}
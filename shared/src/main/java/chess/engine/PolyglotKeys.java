@@ -0,0 +1,191 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The random keys that Polyglot opening books are indexed by, and the hashing of
+ * positions with them
+ * <p>
+ * Polyglot hashes differ from the board's own Zobrist keys: a book only matches a
+ * position if it is hashed with exactly the 781 keys the book was built with. A table is
+ * stored as 781 big-endian 64-bit values, in Polyglot's order: 768 piece keys, 4 castling
+ * keys, 8 en passant keys, then the key for white to move. Polyglot's standard
+ * {@code Random64} table, which published books use, is read by {@link #standard()} from
+ * the classpath resource {@value #STANDARD_RESOURCE}.
+ */
+public final class PolyglotKeys {
+
+    /**
+     * The number of keys in a table
+     */
+    public static final int KEY_COUNT = 781;
+
+    /**
+     * The classpath resource holding Polyglot's standard key table
+     */
+    public static final String STANDARD_RESOURCE = "/chess/engine/polyglot-random64.bin";
+
+    private static final int CASTLING_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+
+    /**
+     * Polyglot's piece kind order, indexed by piece type ordinal: pawn, knight, bishop,
+     * rook, queen, king, with black before white
+     */
+    private static final int[] KINDS = new int[6];
+
+    static {
+        KINDS[ChessPiece.PieceType.PAWN.ordinal()] = 0;
+        KINDS[ChessPiece.PieceType.KNIGHT.ordinal()] = 1;
+        KINDS[ChessPiece.PieceType.BISHOP.ordinal()] = 2;
+        KINDS[ChessPiece.PieceType.ROOK.ordinal()] = 3;
+        KINDS[ChessPiece.PieceType.QUEEN.ordinal()] = 4;
+        KINDS[ChessPiece.PieceType.KING.ordinal()] = 5;
+    }
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private final long[] keys;
+
+    /**
+     * Creates a key table
+     *
+     * @param keys the 781 keys, in Polyglot's order
+     */
+    public PolyglotKeys(long[] keys) {
+        if (keys.length != KEY_COUNT) {
+            throw new IllegalArgumentException("A Polyglot key table has " + KEY_COUNT + " keys, not " + keys.length);
+        }
+        this.keys = Arrays.copyOf(keys, KEY_COUNT);
+    }
+
+    /**
+     * Reads a key table from a file of 781 big-endian 64-bit values
+     *
+     * @param file the file to read
+     * @return the key table
+     * @throws IOException if the file cannot be read or is too short
+     */
+    public static PolyglotKeys load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads Polyglot's standard key table from {@value #STANDARD_RESOURCE}
+     *
+     * @return the standard key table
+     * @throws IOException if the resource is missing or too short
+     */
+    public static PolyglotKeys standard() throws IOException {
+        try (InputStream in = PolyglotKeys.class.getResourceAsStream(STANDARD_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Polyglot's standard key table is not on the classpath at " + STANDARD_RESOURCE);
+            }
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a key table from a stream of 781 big-endian 64-bit values
+     *
+     * @param in the stream to read, which is left open
+     * @return the key table
+     * @throws IOException if the stream cannot be read or ends early
+     */
+    public static PolyglotKeys read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        long[] keys = new long[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; ++i) {
+            keys[i] = data.readLong();
+        }
+        return new PolyglotKeys(keys);
+    }
+
+    /**
+     * Hashes a game's current position
+     *
+     * @param game the game to hash
+     * @return the position's Polyglot key
+     */
+    public long hash(ChessGame game) {
+        return hash(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * Hashes a position
+     *
+     * @param board the board to hash
+     * @param teamToMove the team whose turn it is
+     * @return the position's Polyglot key
+     */
+    public long hash(ChessBoard board, ChessGame.TeamColor teamToMove) {
+        long key = 0;
+        for (ChessPiece.PieceType type : TYPES) {
+            int blackKind = KINDS[type.ordinal()] * 2;
+            for (long black = board.pieceSet(ChessGame.TeamColor.BLACK, type); black != 0; black &= black - 1) {
+                key ^= keys[64 * blackKind + Long.numberOfTrailingZeros(black)];
+            }
+            for (long white = board.pieceSet(ChessGame.TeamColor.WHITE, type); white != 0; white &= white - 1) {
+                key ^= keys[64 * (blackKind + 1) + Long.numberOfTrailingZeros(white)];
+            }
+        }
+
+        int rights = board.getCastlingRights();
+        if ((rights & ChessBoard.WHITE_KINGSIDE) != 0) {
+            key ^= keys[CASTLING_OFFSET];
+        }
+        if ((rights & ChessBoard.WHITE_QUEENSIDE) != 0) {
+            key ^= keys[CASTLING_OFFSET + 1];
+        }
+        if ((rights & ChessBoard.BLACK_KINGSIDE) != 0) {
+            key ^= keys[CASTLING_OFFSET + 2];
+        }
+        if ((rights & ChessBoard.BLACK_QUEENSIDE) != 0) {
+            key ^= keys[CASTLING_OFFSET + 3];
+        }
+
+        int enPassantColumn = enPassantColumn(board, teamToMove);
+        if (enPassantColumn >= 0) {
+            key ^= keys[EN_PASSANT_OFFSET + enPassantColumn];
+        }
+        if (teamToMove == ChessGame.TeamColor.WHITE) {
+            key ^= keys[TURN_OFFSET];
+        }
+        return key;
+    }
+
+    /**
+     * Polyglot only hashes the en passant target when a pawn of the team to move stands
+     * beside the pawn that skipped it
+     *
+     * @return the column (0-7) of the en passant target, or -1 if it is not hashed
+     */
+    private static int enPassantColumn(ChessBoard board, ChessGame.TeamColor teamToMove) {
+        if (board.getEnPassantTarget() == null) {
+            return -1;
+        }
+        int column = board.getEnPassantTarget().getColumn() - 1;
+        int pawnRow = (teamToMove == ChessGame.TeamColor.WHITE) ? 4 : 3;
+        long pawns = board.pieceSet(teamToMove, ChessPiece.PieceType.PAWN);
+        long beside = 0;
+        if (column > 0) {
+            beside |= 1L << (pawnRow * 8 + column - 1);
+        }
+        if (column < 7) {
+            beside |= 1L << (pawnRow * 8 + column + 1);
+        }
+        return ((pawns & beside) != 0) ? column : -1;
+    }
+}
@@ -0,0 +1,622 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the best move in a position with an iterative-deepening alpha-beta search
+ * <p>
+ * Each iteration is a negamax search one ply deeper than the last. After the first move
+ * of a node, the rest are searched with a null window to prove they are no better
+ * (principal variation search), and only re-searched with the full window when one is.
+ * At the horizon, captures and promotions are played out by a quiescence search so the
+ * position is never scored in the middle of an exchange. Moves are tried in the order
+ * most likely to cause a cutoff: the previous iteration's best line, captures of the most
+ * valuable pieces by the least valuable, then quiet moves that caused cutoffs at the same
+ * ply (killers) or anywhere (history). Positions already searched, whether on another
+ * line of this search or by another search sharing the same {@link TranspositionTable},
+ * supply a best move to try first and often a score that ends the node at once. Given
+ * {@link Tablebases}, positions with few enough pieces are scored exactly without search.
+ * <p>
+ * A search owns its move lists and ordering tables, so nothing is allocated while it
+ * runs. A single search is not thread-safe, but separate searches can run concurrently.
+ */
+public class Search {
+
+    /**
+     * The deepest ply the search can reach, counting quiescence and check extensions
+     */
+    public static final int MAX_PLY = 128;
+    /**
+     * The score of being checkmated at the root; a mate n plies away scores MATE - n
+     */
+    public static final int MATE = 31_000;
+    private static final int INFINITY = 32_000;
+    /**
+     * The size of the transposition table a search creates when it is not given one
+     */
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    /**
+     * How many nodes to visit between reading the clock
+     */
+    private static final int CLOCK_INTERVAL = 1024;
+    private static final int MAX_MOVES = 256;
+
+    private static final int PV_SCORE = 3_000_000;
+    private static final int CAPTURE_SCORE = 2_000_000;
+    private static final int FIRST_KILLER_SCORE = 1_000_002;
+    private static final int SECOND_KILLER_SCORE = 1_000_001;
+    private static final int HISTORY_LIMIT = 1_000_000;
+
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY][2];
+    /**
+     * Cutoff counts of quiet moves, indexed by team color ordinal, then start square * 64 + end square
+     */
+    private final int[][] history = new int[2][64 * 64];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+    /**
+     * The move played at each ply on the way to the current node
+     */
+    private final int[] line = new int[MAX_PLY];
+    private final int[] halfmoveClocks = new int[MAX_PLY + 1];
+
+    /**
+     * Position keys of the game so far followed by the positions on the current line
+     */
+    private long[] keys = new long[MAX_PLY * 2];
+    private int gameKeyCount;
+
+    private final TranspositionTable table;
+    private Tablebases tablebases;
+    private ChessBoard board;
+    private ChessGame.TeamColor rootTeam;
+    private long nodes;
+    /**
+     * Transposition table statistics, counted per search so threads sharing a table never contend on them
+     */
+    private long tableProbes;
+    private long tableHits;
+    private long tableStores;
+    private long tableReplacements;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+
+    /**
+     * Creates a search with its own transposition table of the default size
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * Creates a search that stores results in a given transposition table, which may be
+     * shared with other searches running at the same time
+     *
+     * @param table the transposition table to use
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ++ply) {
+            moveLists[ply] = new MoveList(MAX_MOVES);
+        }
+    }
+
+    /**
+     * Searches a game's current position for the team whose turn it is
+     * The game itself is not changed
+     *
+     * @param game the game to search
+     * @param limits when to stop searching
+     * @return the best move found and how it was found
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        table.newSearch();
+        try {
+            return search(game, limits, 1);
+        } finally {
+            // Cleared afterward rather than before, so a stop that races the start still counts
+            stopRequested = false;
+        }
+    }
+
+    /**
+     * Runs iterative deepening from a given depth, leaving the stop signal and the table's
+     * generation as they are so that several searches can run as one
+     *
+     * @param firstDepth the depth of the first iteration
+     */
+    SearchResult search(ChessGame game, SearchLimits limits, int firstDepth) {
+        long start = System.nanoTime();
+        prepare(game, limits, start);
+
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = firstDepth; depth <= limits.depth(); ++depth) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (aborted) {
+                // A partial iteration still searched the previous best move first
+                if (pvLength[0] > 0 && completedDepth == 0) {
+                    bestMove = pvTable[0][0];
+                }
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            previousPvLength = pvLength[0];
+            System.arraycopy(pvTable[0], 0, previousPv, 0, previousPvLength);
+            bestMove = (previousPvLength > 0) ? previousPv[0] : Move.NONE;
+            if (bestMove == Move.NONE || Math.abs(score) >= MATE - depth) {
+                break;
+            }
+        }
+
+        if (bestMove == Move.NONE) {
+            // Stopped before any move was scored, so fall back on any legal move
+            MoveList rootMoves = moveLists[0];
+            rootMoves.clear();
+            MoveGenerator.legalMoves(board, rootTeam, rootMoves);
+            bestMove = rootMoves.isEmpty() ? Move.NONE : rootMoves.get(0);
+        }
+
+        List<ChessMove> principalVariation = new ArrayList<>(previousPvLength);
+        for (int i = 0; i < previousPvLength; ++i) {
+            principalVariation.add(Move.toChessMove(previousPv[i]));
+        }
+        if (principalVariation.isEmpty() && bestMove != Move.NONE) {
+            principalVariation.add(Move.toChessMove(bestMove));
+        }
+        ChessMove best = (bestMove == Move.NONE) ? null : Move.toChessMove(bestMove);
+        return new SearchResult(best, bestScore, completedDepth, nodes, (System.nanoTime() - start) / 1_000_000,
+                principalVariation, new SearchResult.TableStatistics(tableProbes, tableHits, tableStores,
+                tableReplacements));
+    }
+
+    /**
+     * Sets the tablebases to look up positions with few pieces in, instead of searching them
+     *
+     * @param tablebases the tablebases, or null to search every position
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible, returning the best move found so far
+     * If no search is running, the next one stops as soon as it starts
+     * Safe to call from any thread
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clears the stop signal, such as one that arrived after a search had already
+     * finished and would otherwise stop the next search
+     */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Resets the search state for a new position
+     */
+    private void prepare(ChessGame game, SearchLimits limits, long start) {
+        board = new ChessBoard(game.getBoard());
+        rootTeam = game.getTeamTurn();
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        tableStores = 0;
+        tableReplacements = 0;
+        nodeLimit = limits.nodes();
+        deadline = (limits.millis() == Long.MAX_VALUE) ? Long.MAX_VALUE : start + limits.millis() * 1_000_000;
+        aborted = false;
+        previousPvLength = 0;
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        for (int[] teamHistory : history) {
+            Arrays.fill(teamHistory, 0);
+        }
+
+        long[] gameKeys = game.getRecentPositionKeys();
+        gameKeyCount = gameKeys.length;
+        if (keys.length < gameKeyCount + MAX_PLY + 1) {
+            keys = new long[gameKeyCount + MAX_PLY + 1];
+        }
+        System.arraycopy(gameKeys, 0, keys, 0, gameKeyCount);
+        keys[gameKeyCount] = board.zobristKey(rootTeam);
+        halfmoveClocks[0] = game.getHalfmoveClock();
+    }
+
+    /**
+     * @return the team to move at a ply
+     */
+    private ChessGame.TeamColor teamAt(int ply) {
+        if ((ply & 1) == 0) {
+            return rootTeam;
+        }
+        return (rootTeam == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    private ChessGame.TeamColor enemyAt(int ply) {
+        return teamAt(ply + 1);
+    }
+
+    /**
+     * Counts a node and checks the node, time, and stop limits
+     */
+    private void visitNode() {
+        ++nodes;
+        if (nodes >= nodeLimit || stopRequested
+                || ((nodes % CLOCK_INTERVAL) == 0 && System.nanoTime() >= deadline)) {
+            aborted = true;
+        }
+    }
+
+    private boolean inCheck(int ply) {
+        int king = board.kingSquare(teamAt(ply));
+        return king >= 0 && board.isSquareAttacked(king, enemyAt(ply));
+    }
+
+    /**
+     * Determines if the position at a ply is drawn by the fifty-move rule or by repeating a
+     * position since the last capture or pawn move. Within the search one repetition is
+     * enough, since whatever was good enough to repeat once can be repeated again
+     */
+    private boolean isDraw(int ply) {
+        int halfmoves = halfmoveClocks[ply];
+        if (halfmoves >= 100) {
+            return true;
+        }
+        int current = gameKeyCount + ply;
+        long key = keys[current];
+        for (int i = current - 4; i >= Math.max(0, current - halfmoves); i -= 2) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void makeMove(int move, int ply) {
+        boolean resets = Move.hasFlags(move, Move.CAPTURE)
+                || board.pieceIndexAt(Move.startSquare(move)) % 6 == PAWN;
+        board.makeMove(move);
+        line[ply] = move;
+        halfmoveClocks[ply + 1] = resets ? 0 : halfmoveClocks[ply] + 1;
+        keys[gameKeyCount + ply + 1] = board.zobristKey(teamAt(ply + 1));
+    }
+
+    /**
+     * Searches a position to a depth with negamax alpha-beta and principal variation search
+     *
+     * @return the score of the position for the team to move
+     */
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (ply > 0 && isDraw(ply)) {
+            return 0;
+        }
+        if (ply > 0 && tablebases != null) {
+            int result = tablebases.probe(board, teamAt(ply));
+            if (result != Tablebases.UNKNOWN) {
+                return tablebaseScore(result, ply);
+            }
+        }
+        boolean inCheck = inCheck(ply);
+        if (inCheck) {
+            // Look one ply further when in check so the horizon never hides a mate
+            ++depth;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(board, teamAt(ply));
+        }
+        visitNode();
+        if (aborted) {
+            return 0;
+        }
+
+        // A deep enough earlier search of this position may settle it outright
+        long key = keys[gameKeyCount + ply];
+        long entry = table.probe(key);
+        ++tableProbes;
+        int hashMove = Move.NONE;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            ++tableHits;
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.legalMoves(board, teamAt(ply), moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, moves, hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = pickNext(ply, moves, i);
+            makeMove(move, ply);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (isQuiet(move)) {
+                            rememberCutoff(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = (bestScore >= beta) ? TranspositionTable.LOWER
+                : (bestScore > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        ++tableStores;
+        if (table.store(key, (bound == TranspositionTable.UPPER) ? hashMove : bestMove, scoreToTable(bestScore, ply),
+                depth, bound)) {
+            ++tableReplacements;
+        }
+        return bestScore;
+    }
+
+    /**
+     * Converts a tablebase result to a score, with mates counted from the root
+     */
+    private static int tablebaseScore(int result, int ply) {
+        if (result == 0) {
+            return 0;
+        }
+        int mateScore = MATE - ply - Tablebases.matePlies(result);
+        return (result > 0) ? mateScore : -mateScore;
+    }
+
+    /**
+     * Converts a mate score from plies below the root to plies below the current position,
+     * since the same position can be reached at different plies
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        return (score <= -MATE + MAX_PLY) ? score - ply : score;
+    }
+
+    /**
+     * Converts a stored mate score back to plies below the root
+     */
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        return (score <= -MATE + MAX_PLY) ? score + ply : score;
+    }
+
+    /**
+     * Plays out captures and promotions until the position is quiet, so it is not scored
+     * in the middle of an exchange. The team to move may also stand pat on the current
+     * score instead of capturing, unless it is in check
+     *
+     * @return the score of the position for the team to move
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        visitNode();
+        if (aborted) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(board, teamAt(ply));
+        }
+
+        boolean inCheck = inCheck(ply);
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = Evaluation.evaluate(board, teamAt(ply));
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.legalMoves(board, teamAt(ply), moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (!inCheck) {
+            // Only captures and promotions matter once the horizon is reached
+            int kept = 0;
+            for (int i = 0; i < moves.size(); ++i) {
+                if (!isQuiet(moves.get(i))) {
+                    moves.set(kept++, moves.get(i));
+                }
+            }
+            moves.truncate(kept);
+        }
+        scoreMoves(ply, moves, Move.NONE);
+
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = pickNext(ply, moves, i);
+            makeMove(move, ply);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private static boolean isQuiet(int move) {
+        return !Move.hasFlags(move, Move.CAPTURE) && Move.promotionPiece(move) == null;
+    }
+
+    /**
+     * Extends the principal variation of a ply with a new best move and the line below it
+     */
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        int childLength = (ply + 1 < MAX_PLY) ? pvLength[ply + 1] : 0;
+        if (childLength > 0) {
+            System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, Math.min(childLength, MAX_PLY - 1));
+        }
+        pvLength[ply] = Math.min(childLength + 1, MAX_PLY);
+    }
+
+    /**
+     * Records a quiet move that caused a beta cutoff as a killer for its ply and in the history table
+     */
+    private void rememberCutoff(int ply, int move, int depth) {
+        if (!Move.sameMove(killers[ply][0], move)) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] teamHistory = history[teamAt(ply).ordinal()];
+        int index = Move.startSquare(move) * 64 + Move.endSquare(move);
+        teamHistory[index] += depth * depth;
+        if (teamHistory[index] > HISTORY_LIMIT) {
+            // Halve everything so old cutoffs fade and the scores stay below the killers
+            for (int i = 0; i < teamHistory.length; ++i) {
+                teamHistory[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * @return if the moves played so far follow the previous iteration's principal variation
+     */
+    private boolean onPreviousPv(int ply) {
+        if (ply >= previousPvLength) {
+            return false;
+        }
+        for (int i = 0; i < ply; ++i) {
+            if (line[i] != previousPv[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scores each move for ordering, best first
+     *
+     * @param hashMove the best move stored in the transposition table, or Move.NONE
+     */
+    private void scoreMoves(int ply, MoveList moves, int hashMove) {
+        int[] scores = moveScores[ply];
+        int pvMove = onPreviousPv(ply) ? previousPv[ply] : hashMove;
+        int[] teamHistory = history[teamAt(ply).ordinal()];
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = moves.get(i);
+            int score;
+            if (pvMove != Move.NONE && Move.sameMove(move, pvMove)) {
+                score = PV_SCORE;
+            } else if (!isQuiet(move)) {
+                // Most valuable victim, least valuable attacker, with promotions counting as gains
+                int victim = board.pieceIndexAt(Move.endSquare(move));
+                int victimValue = Move.hasFlags(move, Move.EN_PASSANT) ? Evaluation.PIECE_VALUES[PAWN]
+                        : (victim < 0) ? 0 : Evaluation.PIECE_VALUES[victim % 6];
+                int attacker = board.pieceIndexAt(Move.startSquare(move)) % 6;
+                ChessPiece.PieceType promotion = Move.promotionPiece(move);
+                int promotionValue = (promotion == null) ? 0 : Evaluation.PIECE_VALUES[promotion.ordinal()];
+                score = CAPTURE_SCORE + (victimValue + promotionValue) * 10 - Evaluation.PIECE_VALUES[attacker] / 10;
+            } else if (Move.sameMove(move, killers[ply][0])) {
+                score = FIRST_KILLER_SCORE;
+            } else if (Move.sameMove(move, killers[ply][1])) {
+                score = SECOND_KILLER_SCORE;
+            } else {
+                score = teamHistory[Move.startSquare(move) * 64 + Move.endSquare(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Swaps the best-scored move from index onward into index and returns it, so moves
+     * are sorted only as far as the search gets before a cutoff
+     */
+    private int pickNext(int ply, MoveList moves, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); ++i) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves.get(best);
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return moves.get(index);
+    }
+}
@@ -0,0 +1,67 @@
+package chess.engine;
+
+/**
+ * The budget of a search: it stops after reaching the depth, visiting the number of
+ * nodes, or using the time, whichever comes first. The move from the deepest completed
+ * iteration is returned
+ *
+ * @param depth the maximum depth to search, in plies
+ * @param nodes the maximum number of positions to visit
+ * @param millis the maximum time to search, in milliseconds
+ */
+public record SearchLimits(int depth, long nodes, long millis) {
+
+    /**
+     * The deepest a search can go
+     */
+    public static final int MAX_DEPTH = Search.MAX_PLY - 1;
+
+    public SearchLimits {
+        if (depth < 1 || nodes < 1 || millis < 1) {
+            throw new IllegalArgumentException("Search limits must be positive");
+        }
+        depth = Math.min(depth, MAX_DEPTH);
+    }
+
+    /**
+     * @return limits that stop only at the given depth
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return limits that stop only after visiting the given number of nodes
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return limits that stop only after the given time
+     */
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, millis);
+    }
+
+    /**
+     * @return these limits with a different maximum depth
+     */
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    /**
+     * @return these limits with a different node budget
+     */
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    /**
+     * @return these limits with a different time budget
+     */
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+}
@@ -0,0 +1,65 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The outcome of a search
+ *
+ * @param bestMove the best move found, or null if the team to move has no legal moves
+ * @param score the score of the best move in centipawns, from the point of view of the team to move
+ * @param depth the deepest iteration that was completed
+ * @param nodes the number of positions visited
+ * @param millis how long the search took, in milliseconds
+ * @param principalVariation the line of play the search expects, starting with the best move
+ * @param tableStatistics how the search used its transposition table
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long millis,
+                           List<ChessMove> principalVariation, TableStatistics tableStatistics) {
+
+    /**
+     * How a search used its transposition table, summed over every thread of a parallel search
+     *
+     * @param probes the number of lookups
+     * @param hits the number of lookups that found their position
+     * @param stores the number of entries stored
+     * @param replacements the number of stores that evicted a different position
+     */
+    public record TableStatistics(long probes, long hits, long stores, long replacements) {
+
+        /**
+         * @return the fraction of lookups that found their position, from 0 to 1
+         */
+        public double hitRate() {
+            return (probes == 0) ? 0 : (double) hits / probes;
+        }
+
+        /**
+         * @return these statistics added to another search's
+         */
+        public TableStatistics plus(TableStatistics other) {
+            return new TableStatistics(probes + other.probes, hits + other.hits, stores + other.stores,
+                    replacements + other.replacements);
+        }
+    }
+
+    /**
+     * @return if the score is a forced checkmate for either team
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return the number of moves until checkmate, negative if the team to move is being
+     * mated, or 0 if the score is not a mate
+     */
+    public int mateInMoves() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return (score > 0) ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+}
@@ -0,0 +1,295 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Builds the table for a king and one white piece against a lone black king by retrograde
+ * analysis
+ * <p>
+ * First every position is set up once to find whether it is legal, whether the team to
+ * move is checkmated, and where each of its moves leads: to another position of the
+ * table, to a position of another table after a promotion, or to a dead draw after a
+ * capture or a promotion to a minor piece. Then the results are worked backward from the
+ * checkmates one ply at a time. Pass n decides every position where the team to move can
+ * reach a loss of fewer than n plies (a win in n plies) and every position where all moves
+ * reach wins of fewer than n plies (a loss in n plies). A pass only trusts results from
+ * earlier passes, so the positions are split into blocks that worker threads decide
+ * independently, and the table comes out the same for any number of threads. Whatever is
+ * still undecided when passes stop deciding anything is a draw.
+ */
+final class TablebaseGenerator {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int BLOCK_COUNT = Tablebases.TABLE_SIZE / BLOCK_SIZE;
+    /**
+     * The moves of a position that lead to a drawn table
+     */
+    private static final int DRAW = -1;
+    /**
+     * Successors in another table carry its piece type ordinal plus one above this shift
+     */
+    private static final int TABLE_SHIFT = 20;
+    private static final int INDEX_MASK = (1 << TABLE_SHIFT) - 1;
+
+    private final ChessPiece.PieceType piece;
+    /**
+     * Finished tables, indexed by piece type ordinal, for the pieces a pawn can promote to
+     */
+    private final byte[][] promotionTables;
+    private final ExecutorService workers;
+    private final int threads;
+
+    private final byte[] results = new byte[Tablebases.TABLE_SIZE];
+    /**
+     * For each block, where each position's moves start in the block's successors, followed
+     * by the end of the last position's moves. Positions that cannot occur have no moves
+     */
+    private final int[][] moveStarts = new int[BLOCK_COUNT][];
+    private final int[][] successors = new int[BLOCK_COUNT][];
+
+    /**
+     * @param piece the white piece besides the king
+     * @param promotionTables finished tables indexed by piece type ordinal, which must
+     *                        include the queen and rook tables for a pawn
+     * @param workers the threads to generate with
+     * @param threads how many of the workers to use at once
+     */
+    TablebaseGenerator(ChessPiece.PieceType piece, byte[][] promotionTables, ExecutorService workers, int threads) {
+        this.piece = piece;
+        this.promotionTables = promotionTables;
+        this.workers = workers;
+        this.threads = threads;
+    }
+
+    /**
+     * @return the finished table, one result per position index
+     */
+    byte[] generate() {
+        forEachBlock(block -> {
+            findMoves(block);
+            return false;
+        });
+
+        int promotionPlies = 0;
+        if (piece == ChessPiece.PieceType.PAWN) {
+            for (byte[] table : promotionTables) {
+                for (int i = 0; table != null && i < table.length; ++i) {
+                    promotionPlies = Math.max(promotionPlies, Tablebases.matePlies(table[i]));
+                }
+            }
+        }
+
+        // Promoted positions can be decided by any pass up to their own distance to mate
+        int quietPasses = 0;
+        for (int pass = 1; quietPasses < 2 || pass <= promotionPlies + 1; ++pass) {
+            if (pass >= Byte.MAX_VALUE) {
+                throw new IllegalStateException("Mate is too far away to store in a " + piece + " table");
+            }
+            int plies = pass;
+            boolean decided = forEachBlock(block -> decide(block, plies));
+            quietPasses = decided ? 0 : quietPasses + 1;
+        }
+        return results;
+    }
+
+    /**
+     * Runs a task on every block, spread across the worker threads
+     *
+     * @return if the task returned true for any block
+     */
+    private boolean forEachBlock(IntPredicate task) {
+        AtomicInteger nextBlock = new AtomicInteger();
+        AtomicBoolean any = new AtomicBoolean();
+        List<Future<?>> running = new ArrayList<>(threads);
+        for (int i = 0; i < threads; ++i) {
+            running.add(workers.submit(() -> {
+                for (int block = nextBlock.getAndIncrement(); block < BLOCK_COUNT;
+                     block = nextBlock.getAndIncrement()) {
+                    if (task.test(block)) {
+                        any.set(true);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : running) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating the " + piece + " table", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to generate the " + piece + " table", e.getCause());
+            }
+        }
+        return any.get();
+    }
+
+    /**
+     * Sets up each position of a block to record its moves and find checkmates
+     */
+    private void findMoves(int block) {
+        ChessBoard board = new ChessBoard();
+        board.setCastlingRights(0);
+        MoveList moves = new MoveList();
+        int[] starts = new int[BLOCK_SIZE + 1];
+        int[] blockSuccessors = new int[BLOCK_SIZE * 8];
+        int count = 0;
+
+        for (int offset = 0; offset < BLOCK_SIZE; ++offset) {
+            int index = block * BLOCK_SIZE + offset;
+            starts[offset] = count;
+            ChessGame.TeamColor toMove = Tablebases.teamToMove(index);
+            if (!setUp(board, index)) {
+                continue;
+            }
+            if (board.isSquareAttacked(board.kingSquare(other(toMove)), toMove)) {
+                // The team that just moved left its king in check
+                clear(board, index);
+                continue;
+            }
+
+            moves.clear();
+            MoveGenerator.legalMoves(board, toMove, moves);
+            if (moves.isEmpty() && board.isSquareAttacked(board.kingSquare(toMove), other(toMove))) {
+                results[index] = -1;
+            }
+            if (count + moves.size() > blockSuccessors.length) {
+                blockSuccessors = Arrays.copyOf(blockSuccessors, Math.max(blockSuccessors.length * 2,
+                        count + moves.size()));
+            }
+            for (int i = 0; i < moves.size(); ++i) {
+                board.makeMove(moves.get(i));
+                blockSuccessors[count++] = successor(board, other(toMove));
+                board.unmakeMove();
+            }
+            clear(board, index);
+        }
+        starts[BLOCK_SIZE] = count;
+        moveStarts[block] = starts;
+        successors[block] = Arrays.copyOf(blockSuccessors, count);
+    }
+
+    /**
+     * Places the pieces of a position index on an empty board
+     *
+     * @return false, leaving the board empty, if the pieces overlap or a pawn is on the first or last row
+     */
+    private boolean setUp(ChessBoard board, int index) {
+        int whiteKing = Tablebases.whiteKingSquare(index);
+        int blackKing = Tablebases.blackKingSquare(index);
+        int pieceSquare = Tablebases.pieceSquare(index);
+        if (whiteKing == blackKing || whiteKing == pieceSquare || blackKing == pieceSquare) {
+            return false;
+        }
+        if (piece == ChessPiece.PieceType.PAWN && (pieceSquare < 8 || pieceSquare >= 56)) {
+            return false;
+        }
+        board.addPiece(position(whiteKing), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(position(blackKing), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(position(pieceSquare), ChessPiece.of(ChessGame.TeamColor.WHITE, piece));
+        return true;
+    }
+
+    private static void clear(ChessBoard board, int index) {
+        board.addPiece(position(Tablebases.whiteKingSquare(index)), null);
+        board.addPiece(position(Tablebases.blackKingSquare(index)), null);
+        board.addPiece(position(Tablebases.pieceSquare(index)), null);
+    }
+
+    private static ChessPosition position(int square) {
+        return ChessPosition.of(square / 8 + 1, square % 8 + 1);
+    }
+
+    private static ChessGame.TeamColor other(ChessGame.TeamColor team) {
+        return (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    /**
+     * Encodes where a move led: the position in this table or a promotion table, or DRAW
+     */
+    private int successor(ChessBoard board, ChessGame.TeamColor toMove) {
+        long kings = board.pieceSet(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)
+                | board.pieceSet(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        long others = board.occupied() & ~kings;
+        if (others == 0) {
+            return DRAW;
+        }
+        int pieceSquare = Long.numberOfTrailingZeros(others);
+        int type = board.pieceIndexAt(pieceSquare) % 6;
+        int index = Tablebases.index(toMove, board.kingSquare(ChessGame.TeamColor.WHITE),
+                board.kingSquare(ChessGame.TeamColor.BLACK), pieceSquare);
+        if (type == piece.ordinal()) {
+            return index;
+        }
+        // A promotion to a piece without a table can never mate
+        return (promotionTables[type] == null) ? DRAW : ((type + 1) << TABLE_SHIFT) | index;
+    }
+
+    /**
+     * Reads the result of a successor, as decided before the current pass
+     */
+    private byte successorResult(int successor) {
+        if (successor == DRAW) {
+            return 0;
+        }
+        int table = successor >>> TABLE_SHIFT;
+        return (table == 0) ? results[successor] : promotionTables[table - 1][successor & INDEX_MASK];
+    }
+
+    /**
+     * Decides the positions of a block that are won or lost in the given number of plies
+     *
+     * @return if any position was decided
+     */
+    private boolean decide(int block, int plies) {
+        int[] starts = moveStarts[block];
+        int[] blockSuccessors = successors[block];
+        boolean decided = false;
+        for (int offset = 0; offset < BLOCK_SIZE; ++offset) {
+            int index = block * BLOCK_SIZE + offset;
+            int start = starts[offset];
+            int end = starts[offset + 1];
+            if (results[index] != 0 || start == end) {
+                // Already decided, stalemate, or not a legal position
+                continue;
+            }
+            boolean allLose = true;
+            boolean anyWins = false;
+            for (int i = start; i < end; ++i) {
+                int result = successorResult(blockSuccessors[i]);
+                // Only results from earlier passes count, whatever other threads have written since
+                boolean known = result != 0 && Tablebases.matePlies(result) < plies;
+                if (known && result < 0) {
+                    anyWins = true;
+                    break;
+                }
+                if (!known) {
+                    allLose = false;
+                }
+            }
+            if (anyWins) {
+                results[index] = (byte) (plies + 1);
+                decided = true;
+            } else if (allLose) {
+                results[index] = (byte) -(plies + 1);
+                decided = true;
+            }
+        }
+        return decided;
+    }
+}
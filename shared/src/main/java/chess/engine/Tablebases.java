@@ -0,0 +1,242 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Perfect play for a king and one piece against a lone king, read from memory-mapped
+ * tables with the distance to checkmate of every position
+ * <p>
+ * There is one table per piece a king can win with: a queen (KQK), a rook (KRK), or a
+ * pawn (KPK). A king with a bishop or knight, or kings alone, can never checkmate, so
+ * those positions are always draws and need no table. The tables are written from the
+ * side of white holding the extra piece; positions where black holds it are mirrored
+ * top to bottom and the colors swapped before lookup. Each table is a file of one signed
+ * byte per position, indexed by the team to move, then the squares of the white king,
+ * the black king, and the piece. A byte is 0 for a draw, otherwise one more than the
+ * number of plies until checkmate, positive if the team to move delivers it and negative
+ * if it receives it.
+ * <p>
+ * The tables are generated once with {@link #generate(Path, int)}, spreading the work
+ * across threads, and then mapped read-only by {@link #open(Path)}, so any number of
+ * searches on a host share one copy. Probing neither allocates nor locks.
+ * The tables ignore castling and the fifty-move rule.
+ */
+public final class Tablebases {
+
+    /**
+     * What a probe returns for a position that no table covers
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * The number of positions in a table
+     */
+    static final int TABLE_SIZE = 2 * 64 * 64 * 64;
+
+    /**
+     * The pieces that have tables, in the order they are generated, since a pawn promotes
+     * into the others
+     */
+    private static final ChessPiece.PieceType[] TABLE_PIECES = {ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.PAWN};
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    /**
+     * The outcome of a game with perfect play
+     */
+    public enum Outcome {
+        WHITE_WINS,
+        BLACK_WINS,
+        DRAW
+    }
+
+    /**
+     * Mapped tables indexed by piece type ordinal, null where there is no table
+     */
+    private final MappedByteBuffer[] tables;
+
+    private Tablebases(MappedByteBuffer[] tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Generates every table into a directory, replacing any already there
+     *
+     * @param directory the directory to write the tables to, created if it does not exist
+     * @param threads the number of threads to generate with, at least 1
+     * @throws IOException if a table cannot be written
+     */
+    public static void generate(Path directory, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Generating tablebases needs at least 1 thread");
+        }
+        Files.createDirectories(directory);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tablebase-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            byte[][] generated = new byte[6][];
+            for (ChessPiece.PieceType piece : TABLE_PIECES) {
+                byte[] table = new TablebaseGenerator(piece, generated, workers, threads).generate();
+                Files.write(directory.resolve(fileName(piece)), table);
+                generated[piece.ordinal()] = table;
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Maps the tables in a directory. Any table whose file is missing is left out, and
+     * probes of its positions return UNKNOWN
+     *
+     * @param directory the directory holding the tables
+     * @return the tablebases
+     * @throws IOException if a table cannot be mapped or has the wrong size
+     */
+    public static Tablebases open(Path directory) throws IOException {
+        MappedByteBuffer[] tables = new MappedByteBuffer[6];
+        for (ChessPiece.PieceType piece : TABLE_PIECES) {
+            Path file = directory.resolve(fileName(piece));
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() != TABLE_SIZE) {
+                    throw new IOException("Not a tablebase: " + file);
+                }
+                tables[piece.ordinal()] = channel.map(FileChannel.MapMode.READ_ONLY, 0, TABLE_SIZE);
+            }
+        }
+        return new Tablebases(tables);
+    }
+
+    private static String fileName(ChessPiece.PieceType piece) {
+        char letter = switch (piece) {
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case PAWN -> 'P';
+            default -> throw new IllegalArgumentException("No tablebase for a " + piece);
+        };
+        return "K" + letter + "K.tb";
+    }
+
+    /**
+     * Looks up a position with at most three pieces
+     *
+     * @param board the board to look up
+     * @param teamToMove the team whose turn it is
+     * @return 0 for a draw, or one more than the number of plies until checkmate, positive
+     * if the team to move wins and negative if it loses, or UNKNOWN if no table covers
+     * the position
+     */
+    public int probe(ChessBoard board, ChessGame.TeamColor teamToMove) {
+        long occupied = board.occupied();
+        int whiteKing = board.kingSquare(ChessGame.TeamColor.WHITE);
+        int blackKing = board.kingSquare(ChessGame.TeamColor.BLACK);
+        int pieceCount = Long.bitCount(occupied);
+        if (pieceCount > 3 || whiteKing < 0 || blackKing < 0) {
+            return UNKNOWN;
+        }
+        if (pieceCount == 2) {
+            return 0;
+        }
+
+        int pieceSquare = Long.numberOfTrailingZeros(occupied & ~(1L << whiteKing) & ~(1L << blackKing));
+        int pieceIndex = board.pieceIndexAt(pieceSquare);
+        ChessPiece.PieceType type = TYPES[pieceIndex % 6];
+        if (type == ChessPiece.PieceType.BISHOP || type == ChessPiece.PieceType.KNIGHT) {
+            return 0;
+        }
+        MappedByteBuffer table = tables[type.ordinal()];
+        boolean whiteHoldsPiece = pieceIndex < 6;
+        if (table == null || (type == ChessPiece.PieceType.ROOK && mayCastle(board, whiteHoldsPiece, pieceSquare))) {
+            return UNKNOWN;
+        }
+        if (whiteHoldsPiece) {
+            return table.get(index(teamToMove, whiteKing, blackKing, pieceSquare));
+        }
+        // Mirror the board so that white holds the piece
+        ChessGame.TeamColor mirroredTeam = (teamToMove == ChessGame.TeamColor.WHITE)
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return table.get(index(mirroredTeam, blackKing ^ 56, whiteKing ^ 56, pieceSquare ^ 56));
+    }
+
+    /**
+     * Determines if the team with a rook may still castle with it, which the tables do not cover
+     */
+    private static boolean mayCastle(ChessBoard board, boolean white, int rookSquare) {
+        int rights = board.getCastlingRights();
+        int kingHome = white ? 4 : 60;
+        int kingside = white ? ChessBoard.WHITE_KINGSIDE : ChessBoard.BLACK_KINGSIDE;
+        int queenside = white ? ChessBoard.WHITE_QUEENSIDE : ChessBoard.BLACK_QUEENSIDE;
+        if (board.kingSquare(white ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK) != kingHome) {
+            return false;
+        }
+        return ((rights & kingside) != 0 && rookSquare == kingHome + 3)
+                || ((rights & queenside) != 0 && rookSquare == kingHome - 4);
+    }
+
+    /**
+     * Determines how a game will end with perfect play, for adjudicating it without
+     * playing it out
+     *
+     * @param game the game to adjudicate
+     * @return the outcome, or null if no table covers the position
+     */
+    public Outcome adjudicate(ChessGame game) {
+        int result = probe(game.getBoard(), game.getTeamTurn());
+        if (result == UNKNOWN) {
+            return null;
+        }
+        if (result == 0) {
+            return Outcome.DRAW;
+        }
+        boolean whiteToMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE;
+        return (result > 0) == whiteToMove ? Outcome.WHITE_WINS : Outcome.BLACK_WINS;
+    }
+
+    /**
+     * @param result a probe result other than a draw or UNKNOWN
+     * @return the number of plies until checkmate
+     */
+    public static int matePlies(int result) {
+        return Math.abs(result) - 1;
+    }
+
+    /**
+     * @return the position index of a table
+     */
+    static int index(ChessGame.TeamColor teamToMove, int whiteKing, int blackKing, int pieceSquare) {
+        return (((teamToMove.ordinal() << 6 | whiteKing) << 6) | blackKing) << 6 | pieceSquare;
+    }
+
+    static ChessGame.TeamColor teamToMove(int index) {
+        return (index >>> 18 == 0) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    static int whiteKingSquare(int index) {
+        return (index >>> 12) & 63;
+    }
+
+    static int blackKingSquare(int index) {
+        return (index >>> 6) & 63;
+    }
+
+    static int pieceSquare(int index) {
+        return index & 63;
+    }
+}
@@ -0,0 +1,220 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, keyed by Zobrist key, that any number of
+ * searches can share without locking
+ * <p>
+ * Entries live in a single {@code long[]}, two words each: the key exclusive-ored with
+ * the data, then the data. A probe only accepts an entry whose two words exclusive-or
+ * back to the probed key, so an entry half-written by another thread, or overwritten by
+ * a different position, is rejected rather than misread. Losing an occasional entry to
+ * a race costs a little search time but never a wrong result.
+ * <p>
+ * Entries are grouped in buckets of four, one 64-byte cache line. Storing replaces the
+ * entry for the same position if there is one, and otherwise the entry worth the least:
+ * the shallowest, with entries from earlier searches aging toward replacement.
+ * <p>
+ * The data word packs the best move's 15 move bits, the score, the depth, the bound, and
+ * the generation of the search that stored it. Read the fields of a probed entry with
+ * the static accessors.
+ * <p>
+ * The table keeps no statistics of its own, since shared counters would be contended on
+ * every probe. Each {@link Search} counts its own probes and stores instead.
+ */
+public class TranspositionTable {
+
+    /**
+     * What a probe returns when the position is not in the table
+     */
+    public static final long NO_ENTRY = 0;
+
+    /**
+     * The stored score is exact
+     */
+    public static final int EXACT = 1;
+    /**
+     * The stored score is a lower bound: the search failed high
+     */
+    public static final int LOWER = 2;
+    /**
+     * The stored score is an upper bound: the search failed low
+     */
+    public static final int UPPER = 3;
+
+    /**
+     * The bits of a packed move that identify it, leaving out its flags
+     */
+    private static final int MOVE_MASK = 0x7FFF;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_WORDS = BUCKET_ENTRIES * 2;
+    private static final int BYTES_PER_BUCKET = BUCKET_WORDS * Long.BYTES;
+    /**
+     * How many plies of depth an entry loses per search since it was stored, when choosing one to replace
+     */
+    private static final int AGE_WEIGHT = 8;
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation = 0;
+
+    /**
+     * Creates a table using at most the given amount of memory, rounded down to a power of
+     * two number of buckets
+     *
+     * @param megabytes the size of the table in megabytes, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("A transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(((long) megabytes << 20) / BYTES_PER_BUCKET);
+        // Java arrays are indexed by int
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_WORDS));
+        table = new long[(int) (buckets * BUCKET_WORDS)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return the size of the table in megabytes
+     */
+    public int megabytes() {
+        return (int) (((long) table.length * Long.BYTES) >> 20);
+    }
+
+    /**
+     * Marks the start of a new search, so that entries from earlier searches are replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    private int bucketIndex(long key) {
+        // The low bits of the key pick the bucket
+        return (int) (key & bucketMask) * BUCKET_WORDS;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position's Zobrist key
+     * @return the entry's data word, or NO_ENTRY if the position is not stored
+     */
+    public long probe(long key) {
+        int bucket = bucketIndex(key);
+        for (int i = bucket; i < bucket + BUCKET_WORDS; i += 2) {
+            long data = table[i + 1];
+            if (data != NO_ENTRY && (table[i] ^ data) == key) {
+                return data;
+            }
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Stores the result of searching a position
+     *
+     * @param key the position's Zobrist key
+     * @param move the best move found, as a packed move, or Move.NONE
+     * @param score the score, with mate scores relative to this position
+     * @param depth the depth the position was searched to
+     * @param bound EXACT, LOWER, or UPPER
+     * @return if a different position was evicted to make room
+     */
+    public boolean store(long key, int move, int score, int depth, int bound) {
+        int bucket = bucketIndex(key);
+        int currentGeneration = generation;
+        int victim = bucket;
+        int victimWorth = Integer.MAX_VALUE;
+        boolean evicting = true;
+        for (int i = bucket; i < bucket + BUCKET_WORDS; i += 2) {
+            long data = table[i + 1];
+            if (data == NO_ENTRY) {
+                victim = i;
+                evicting = false;
+                break;
+            }
+            if ((table[i] ^ data) == key) {
+                // Keep the old best move if the new search did not find one
+                if ((move & MOVE_MASK) == 0) {
+                    move = move(data);
+                }
+                victim = i;
+                evicting = false;
+                break;
+            }
+            int age = (currentGeneration - generation(data)) & 0xFF;
+            int worth = depth(data) - AGE_WEIGHT * age;
+            if (worth < victimWorth) {
+                victim = i;
+                victimWorth = worth;
+            }
+        }
+
+        long data = (move & MOVE_MASK) | ((long) (score & 0xFFFF) << 16) | ((long) Math.min(depth, 0xFF) << 32)
+                | ((long) bound << 40) | ((long) currentGeneration << 48);
+        table[victim] = key ^ data;
+        table[victim + 1] = data;
+        return evicting;
+    }
+
+    /**
+     * @return the packed best move of an entry, without flags, or Move.NONE
+     */
+    public static int move(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    /**
+     * @return the score of an entry
+     */
+    public static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    /**
+     * @return the depth an entry was searched to
+     */
+    public static int depth(long entry) {
+        return (int) ((entry >>> 32) & 0xFF);
+    }
+
+    /**
+     * @return the bound of an entry: EXACT, LOWER, or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) ((entry >>> 40) & 0x3);
+    }
+
+    private static int generation(long entry) {
+        return (int) ((entry >>> 48) & 0xFF);
+    }
+
+    /**
+     * Estimates how full the table is with entries from the current search by sampling
+     * the first thousand entries
+     *
+     * @return the estimated fill in permille, from 0 to 1000
+     */
+    public int hashfull() {
+        int sampled = Math.min(1000, table.length / 2);
+        int used = 0;
+        int currentGeneration = generation;
+        for (int i = 0; i < sampled; ++i) {
+            long data = table[i * 2 + 1];
+            if (data != NO_ENTRY && generation(data) == currentGeneration) {
+                ++used;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+}
@@ -26,7 +26,10 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        CLAIM_DRAW,
+        ADD_BOT,
+        ANALYZE
     }
 
     public CommandType getCommandType() {
@@ -0,0 +1,115 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.move;
+import static passoff.chess.TestUtilities.position;
+
+public class ChessBoardTest {
+
+    @Test
+    public void unmakeMoveRestoresBoard() {
+        ChessBoard board = ChessGame.fromFen("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1").getBoard();
+        ChessBoard original = new ChessBoard(board);
+
+        board.makeMove(move("g2", "h1", ChessPiece.PieceType.QUEEN));
+        board.makeMove(move("b7", "a8", ChessPiece.PieceType.KNIGHT));
+        Assertions.assertNotEquals(original, board);
+        board.unmakeMove();
+        board.unmakeMove();
+
+        Assertions.assertEquals(original, board);
+        Assertions.assertEquals(original.zobristKey(), board.zobristKey());
+    }
+
+    @Test
+    public void movingFromEmptySquareIsRejected() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        ChessBoard original = new ChessBoard(board);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> board.movePiece(move("e4", "e5")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> board.makeMove(move("d3", "d4")));
+        Assertions.assertEquals(original, board);
+        Assertions.assertThrows(RuntimeException.class, board::unmakeMove);
+    }
+
+    @Test
+    public void zobristKeyMatchesPosition() {
+        ChessBoard played = new ChessBoard();
+        played.resetBoard();
+        played.movePiece(move("g1", "f3"));
+        played.movePiece(move("g8", "f6"));
+        played.movePiece(move("f3", "g1"));
+        played.movePiece(move("f6", "g8"));
+
+        ChessBoard reset = new ChessBoard();
+        reset.resetBoard();
+        Assertions.assertEquals(reset.zobristKey(), played.zobristKey());
+
+        ChessBoard built = new ChessBoard();
+        built.addPiece(position("e1"), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        built.addPiece(position("e8"), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        Assertions.assertNotEquals(reset.zobristKey(), built.zobristKey());
+        built.addPiece(position("e8"), null);
+        built.addPiece(position("e1"), null);
+        Assertions.assertEquals(new ChessBoard().zobristKey(), built.zobristKey());
+    }
+
+    @Test
+    public void scoresFollowMakeAndUnmake() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        ChessBoard original = new ChessBoard(game.getBoard());
+        // Castling, a capture, a two-square pawn move, en passant, and a capture promotion
+        game.makeMove(move("e1", "g1"));
+        game.makeMove(move("h3", "g2"));
+        game.makeMove(move("a2", "a4"));
+        game.makeMove(move("b4", "a3"));
+        game.makeMove(move("f3", "f6"));
+        game.makeMove(move("g2", "f1", ChessPiece.PieceType.QUEEN));
+
+        ChessBoard played = game.getBoard();
+        ChessBoard rebuilt = ChessGame.fromFen(game.toFen()).getBoard();
+        Assertions.assertEquals(rebuilt.midgameScore(), played.midgameScore());
+        Assertions.assertEquals(rebuilt.endgameScore(), played.endgameScore());
+        Assertions.assertEquals(rebuilt.phase(), played.phase());
+
+        ChessBoard board = new ChessBoard(original);
+        board.makeMove(move("d5", "e6"));
+        board.makeMove(move("a6", "e2"));
+        board.unmakeMove();
+        board.unmakeMove();
+        Assertions.assertEquals(original.midgameScore(), board.midgameScore());
+        Assertions.assertEquals(original.endgameScore(), board.endgameScore());
+        Assertions.assertEquals(original.phase(), board.phase());
+    }
+
+    @Test
+    public void jsonLeavesOutDerivedTotals() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Gson gson = new Gson();
+        String json = gson.toJson(game);
+        Assertions.assertFalse(json.contains("pieceKey"));
+        Assertions.assertFalse(json.contains("midgameScore"));
+
+        ChessBoard original = game.getBoard();
+        ChessBoard read = gson.fromJson(json, ChessGame.class).getBoard();
+        Assertions.assertEquals(original, read);
+        Assertions.assertEquals(original.zobristKey(), read.zobristKey());
+        Assertions.assertEquals(original.midgameScore(), read.midgameScore());
+        Assertions.assertEquals(original.endgameScore(), read.endgameScore());
+        Assertions.assertEquals(original.phase(), read.phase());
+    }
+
+    @Test
+    public void startingBoardIsBalanced() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Assertions.assertEquals(0, board.midgameScore());
+        Assertions.assertEquals(0, board.endgameScore());
+        Assertions.assertEquals(ChessBoard.MAX_PHASE, board.phase());
+        Assertions.assertEquals(0, new ChessBoard().phase());
+    }
+}
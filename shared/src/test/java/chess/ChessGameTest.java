@@ -0,0 +1,205 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static passoff.chess.TestUtilities.move;
+import static passoff.chess.TestUtilities.position;
+
+public class ChessGameTest {
+
+    @Test
+    public void enPassantOnlyCapturesEnemyPawns() {
+        // The c3 target was skipped by white's own pawn, so only black may capture onto it
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/1pP5/8/1P6/4K3 b - c3 0 1");
+        Assertions.assertFalse(game.validMoves(position("b2")).contains(move("b2", "c3")));
+        Assertions.assertTrue(game.validMoves(position("b4")).contains(move("b4", "c3")));
+
+        // Pushing straight onto a target is not a capture, and unmaking it restores the board
+        ChessBoard board = ChessGame.fromFen("4k3/8/8/8/2P5/8/2P5/4K3 w - c3 0 1").getBoard();
+        ChessBoard original = new ChessBoard(board);
+        board.makeMove(move("c2", "c3"));
+        Assertions.assertNotNull(board.getPiece(position("c4")));
+        board.unmakeMove();
+        Assertions.assertEquals(original, board);
+    }
+
+    @Test
+    public void historyStartsOverAfterPawnMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int cycle = 0; cycle < 2; ++cycle) {
+            game.makeMove(move("g1", "f3"));
+            game.makeMove(move("g8", "f6"));
+            game.makeMove(move("f3", "g1"));
+            game.makeMove(move("f6", "g8"));
+        }
+        Assertions.assertEquals(8, game.getRecentPositionKeys().length);
+        game.makeMove(move("e2", "e4"));
+        Assertions.assertEquals(0, game.getRecentPositionKeys().length);
+        // Only the positions since the pawn move are stored with the game
+        Assertions.assertTrue(new Gson().toJson(game).contains("\"historySize\":0"));
+
+        game.makeMove(move("g8", "f6"));
+        Assertions.assertArrayEquals(new long[]{ChessGame.fromFen(
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1").zobristKey()},
+                game.getRecentPositionKeys());
+    }
+
+    @Test
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int cycle = 0; cycle < 2; ++cycle) {
+            Assertions.assertFalse(game.isThreefoldRepetition());
+            game.makeMove(move("g1", "f3"));
+            game.makeMove(move("g8", "f6"));
+            game.makeMove(move("f3", "g1"));
+            game.makeMove(move("f6", "g8"));
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition());
+        Assertions.assertTrue(game.evaluateStatus().canClaimDraw());
+        Assertions.assertFalse(game.evaluateStatus().isDraw());
+        Assertions.assertEquals(8, game.getHalfmoveClock());
+
+        for (int cycle = 0; cycle < 2; ++cycle) {
+            Assertions.assertFalse(game.isFivefoldRepetition());
+            game.makeMove(move("g1", "f3"));
+            game.makeMove(move("g8", "f6"));
+            game.makeMove(move("f3", "g1"));
+            game.makeMove(move("f6", "g8"));
+        }
+        Assertions.assertTrue(game.isFivefoldRepetition());
+        Assertions.assertTrue(game.evaluateStatus().isDraw());
+        Assertions.assertFalse(game.evaluateStatus().canClaimDraw());
+
+        game.makeMove(move("e2", "e4"));
+        Assertions.assertFalse(game.isThreefoldRepetition());
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        String[][] route = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "h4"}, {"f6", "h5"}, {"h4", "f3"}, {"h5", "f6"},
+                {"f3", "g1"}, {"f6", "g8"}};
+        for (int move = 0; move < 100; ++move) {
+            Assertions.assertFalse(game.isFiftyMoveRule());
+            String[] squares = route[move % route.length];
+            game.makeMove(move(squares[0], squares[1]));
+        }
+        Assertions.assertTrue(game.isFiftyMoveRule());
+
+        // Starts one move short of each limit, so no position has repeated
+        ChessGame claimable = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K1N1 w - - 99 60");
+        claimable.makeMove(move("g1", "f3"));
+        Assertions.assertTrue(claimable.evaluateStatus().canClaimDraw());
+        Assertions.assertFalse(claimable.evaluateStatus().isDraw());
+
+        ChessGame drawn = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K1N1 w - - 149 85");
+        Assertions.assertFalse(drawn.isSeventyFiveMoveRule());
+        drawn.makeMove(move("g1", "f3"));
+        Assertions.assertTrue(drawn.isSeventyFiveMoveRule());
+        Assertions.assertTrue(drawn.evaluateStatus().isDraw());
+    }
+
+    @Test
+    public void fenRoundTrip() {
+        String[] positions = {Perft.START_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40"};
+        for (String fen : positions) {
+            Assertions.assertEquals(fen, ChessGame.fromFen(fen).toFen());
+        }
+        Assertions.assertEquals(new ChessGame(), ChessGame.fromFen(Perft.START_POSITION));
+        Assertions.assertEquals(Perft.START_POSITION, new ChessGame().toFen());
+    }
+
+    @Test
+    public void fenClocksAreOptional() {
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/8/4K3 b Kq e3");
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertEquals(ChessBoard.WHITE_KINGSIDE | ChessBoard.BLACK_QUEENSIDE,
+                game.getBoard().getCastlingRights());
+        Assertions.assertEquals(ChessPosition.of(3, 5), game.getBoard().getEnPassantTarget());
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        Assertions.assertEquals(1, game.getFullmoveNumber());
+    }
+
+    @Test
+    public void fullmoveNumberAdvancesAfterBlack() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2", "e4"));
+        Assertions.assertEquals(1, game.getFullmoveNumber());
+        game.makeMove(move("e7", "e5"));
+        Assertions.assertEquals(2, game.getFullmoveNumber());
+    }
+
+    @Test
+    public void invalidFen() {
+        String[] invalid = {"", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - zero 1",
+                "rnbxkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"};
+        for (String fen : invalid) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+
+    @Test
+    public void promotionOnlyOnPromotingMoves() {
+        ChessGame game = new ChessGame();
+        ChessPosition knight = ChessPosition.of(1, 2);
+        ChessPosition pawn = ChessPosition.of(2, 5);
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            Assertions.assertThrows(InvalidMoveException.class,
+                    () -> game.makeMove(new ChessMove(knight, ChessPosition.of(3, 3), type)));
+            Assertions.assertThrows(InvalidMoveException.class,
+                    () -> game.makeMove(new ChessMove(pawn, ChessPosition.of(4, 5), type)));
+        }
+
+        ChessGame promoting = ChessGame.fromFen("8/4P3/8/8/8/k7/8/K7 w - - 0 1");
+        Assertions.assertThrows(InvalidMoveException.class, () -> promoting.makeMove(
+                new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(8, 5), ChessPiece.PieceType.KING)));
+        Assertions.assertEquals("8/4P3/8/8/8/k7/8/K7 w - - 0 1", promoting.toFen());
+    }
+
+    @Test
+    public void legalMovesMatchValidMoves() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String[][] castles = {{"e1", "g1"}, {"e8", "c8"}};
+        for (String[] castle : castles) {
+            HashSet<ChessMove> pieceMoves = new HashSet<>();
+            for (int row = 1; row <= 8; ++row) {
+                for (int col = 1; col <= 8; ++col) {
+                    ChessPosition position = ChessPosition.of(row, col);
+                    ChessPiece piece = game.getBoard().getPiece(position);
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        pieceMoves.addAll(game.validMoves(position));
+                    }
+                }
+            }
+            Assertions.assertEquals(pieceMoves, new HashSet<>(game.legalMoves()));
+            Assertions.assertSame(game.legalMoves(), game.legalMoves());
+            Assertions.assertTrue(game.legalMoves().contains(move(castle[0], castle[1])));
+            game.makeMove(move(castle[0], castle[1]));
+        }
+        Assertions.assertEquals("2kr3r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R4RK1 w - - 2 2", game.toFen());
+    }
+
+    @Test
+    public void legalMovesFollowBoardChanges() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(20, game.legalMoves().size());
+        Assertions.assertSame(game.legalMoves(), game.legalMoves());
+
+        game.getBoard().addPiece(ChessPosition.of(2, 5), null);
+        Assertions.assertEquals(29, game.legalMoves().size());
+        Assertions.assertTrue(game.validMoves(ChessPosition.of(1, 4)).contains(move("d1", "h5")));
+    }
+}
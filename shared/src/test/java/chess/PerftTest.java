@@ -0,0 +1,65 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PerftTest {
+
+    private static void assertPerft(String fen, long... expectedCounts) {
+        Perft perft = new Perft(ChessGame.fromFen(fen));
+        for (int depth = 1; depth <= expectedCounts.length; ++depth) {
+            long start = System.nanoTime();
+            long nodes = perft.perft(depth);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            Assertions.assertEquals(expectedCounts[depth - 1], nodes, String.format("Wrong count at depth %d", depth));
+            System.out.printf("perft(%d) = %d at %.0f nodes/s%n", depth, nodes, nodes * 1e9 / elapsed);
+        }
+    }
+
+    @Test
+    public void startPosition() {
+        assertPerft(Perft.START_POSITION, 20, 400, 8902, 197281);
+    }
+
+    @Test
+    public void rookEndgame() {
+        assertPerft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238);
+    }
+
+    @Test
+    public void kiwipete() {
+        assertPerft("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 48, 2039, 97862);
+    }
+
+    @Test
+    public void castlingAndPromotions() {
+        assertPerft("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467);
+    }
+
+    @Test
+    public void discoveredChecks() {
+        assertPerft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379);
+    }
+
+    @Test
+    public void promotions() {
+        assertPerft("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", 24, 496, 9483, 182838);
+    }
+
+    @Test
+    public void middlegame() {
+        assertPerft("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890);
+    }
+
+    @Test
+    public void gameIsRestored() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 17 40";
+        ChessGame game = ChessGame.fromFen(fen);
+        ChessGame original = ChessGame.fromFen(fen);
+        new Perft(game).perft(3);
+        Assertions.assertEquals(fen, game.toFen());
+        Assertions.assertEquals(original, game);
+        Assertions.assertEquals(original.toFen(), game.toFen());
+        Assertions.assertEquals(original.zobristKey(), game.zobristKey());
+    }
+}
@@ -0,0 +1,37 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class EvaluationTest {
+
+    private static int evaluate(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        return Evaluation.evaluate(game.getBoard(), game.getTeamTurn());
+    }
+
+    @Test
+    public void symmetricPositionsAreEven() {
+        Assertions.assertEquals(0, evaluate(Perft.START_POSITION));
+        Assertions.assertEquals(0, evaluate("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"));
+    }
+
+    @Test
+    public void mirroredPositionsScoreTheSame() {
+        Assertions.assertEquals(evaluate("4k3/8/8/8/3P4/8/8/R3K3 w - - 0 1"),
+                evaluate("r3k3/8/8/3p4/8/8/8/4K3 b - - 0 1"));
+        Assertions.assertEquals(evaluate("4k3/8/8/8/3P4/8/8/R3K3 w - - 0 1"),
+                -evaluate("4k3/8/8/8/3P4/8/8/R3K3 b - - 0 1"));
+    }
+
+    @Test
+    public void kingCentralizesInEndgame() {
+        // Without queens, rooks, or minor pieces the king belongs in the center
+        Assertions.assertTrue(evaluate("7k/8/8/8/3K4/8/8/8 w - - 0 1") > evaluate("7k/8/8/8/8/8/8/K7 w - - 0 1"));
+        // With everything on the board it belongs behind its pawns
+        Assertions.assertTrue(evaluate("rnbqkbnr/pppppppp/8/8/4K3/8/PPPPPPPP/RNBQ1BNR w kq - 0 1")
+                < evaluate(Perft.START_POSITION));
+    }
+}
@@ -0,0 +1,187 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static passoff.chess.TestUtilities.move;
+import static passoff.chess.TestUtilities.position;
+
+public class OpeningBookTest {
+
+    private static final String CASTLING_POSITION = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+    private static PolyglotKeys keys;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void createKeys() {
+        // Books built for these tests only need to agree with themselves on the keys
+        SplittableRandom random = new SplittableRandom(1);
+        long[] values = new long[PolyglotKeys.KEY_COUNT];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = random.nextLong();
+        }
+        keys = new PolyglotKeys(values);
+    }
+
+    private static int encode(String start, String end) {
+        ChessPosition from = position(start);
+        ChessPosition to = position(end);
+        return (to.getColumn() - 1) | ((to.getRow() - 1) << 3) | ((from.getColumn() - 1) << 6)
+                | ((from.getRow() - 1) << 9);
+    }
+
+    private record Entry(long key, int move, int weight) {
+    }
+
+    private Path writeBook(List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::key, Long::compareUnsigned));
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.size() * 16);
+        for (Entry entry : sorted) {
+            buffer.putLong(entry.key()).putShort((short) entry.move()).putShort((short) entry.weight()).putInt(0);
+        }
+        Path file = directory.resolve("book.bin");
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    @Test
+    public void findsWeightedMoves() throws IOException {
+        ChessGame start = ChessGame.fromFen(Perft.START_POSITION);
+        long startKey = keys.hash(start);
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry(startKey, encode("e2", "e4"), 3));
+        entries.add(new Entry(startKey, encode("d2", "d4"), 1));
+        // Not legal here, as if from a colliding position
+        entries.add(new Entry(startKey, encode("e2", "e5"), 50));
+        for (int i = 0; i < 100; ++i) {
+            entries.add(new Entry(startKey + i + 1, encode("g1", "f3"), 1));
+            entries.add(new Entry(startKey - i - 1, encode("b1", "c3"), 1));
+        }
+        OpeningBook book = OpeningBook.open(writeBook(entries), keys);
+        Assertions.assertEquals(203, book.size());
+
+        List<OpeningBook.BookMove> moves = book.lookup(start);
+        Assertions.assertEquals(List.of(new OpeningBook.BookMove(move("e2", "e4"), 3),
+                new OpeningBook.BookMove(move("d2", "d4"), 1)), moves);
+
+        Random random = new Random(7);
+        int kingPawn = 0;
+        for (int i = 0; i < 400; ++i) {
+            ChessMove picked = book.pickMove(start, random);
+            Assertions.assertTrue(picked.equals(move("e2", "e4")) || picked.equals(move("d2", "d4")));
+            kingPawn += picked.equals(move("e2", "e4")) ? 1 : 0;
+        }
+        Assertions.assertTrue(kingPawn > 250 && kingPawn < 350);
+    }
+
+    @Test
+    public void missingPositionHasNoMove() throws IOException {
+        ChessGame start = ChessGame.fromFen(Perft.START_POSITION);
+        OpeningBook book = OpeningBook.open(writeBook(List.of(new Entry(keys.hash(start), encode("e2", "e4"), 1))),
+                keys);
+        ChessGame other = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        Assertions.assertTrue(book.lookup(other).isEmpty());
+        Assertions.assertNull(book.pickMove(other, new Random(1)));
+    }
+
+    @Test
+    public void castlingIsTranslated() throws IOException {
+        ChessGame game = ChessGame.fromFen(CASTLING_POSITION);
+        long key = keys.hash(game);
+        OpeningBook book = OpeningBook.open(writeBook(List.of(new Entry(key, encode("e1", "h1"), 1),
+                new Entry(key, encode("e1", "a1"), 1))), keys);
+        Assertions.assertEquals(List.of(new OpeningBook.BookMove(move("e1", "g1"), 1),
+                new OpeningBook.BookMove(move("e1", "c1"), 1)), book.lookup(game));
+    }
+
+    @Test
+    public void hashDependsOnWholePosition() {
+        long startKey = keys.hash(ChessGame.fromFen(Perft.START_POSITION));
+        Assertions.assertNotEquals(startKey,
+                keys.hash(ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1")));
+        Assertions.assertNotEquals(startKey,
+                keys.hash(ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w Kkq - 0 1")));
+        // An en passant target only counts when a pawn can capture onto it
+        Assertions.assertEquals(keys.hash(ChessGame.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - e3 0 1")),
+                keys.hash(ChessGame.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - - 0 1")));
+        Assertions.assertNotEquals(keys.hash(ChessGame.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1")),
+                keys.hash(ChessGame.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1")));
+    }
+
+    @Test
+    public void readsKeyTable() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PolyglotKeys.KEY_COUNT * Long.BYTES);
+        for (int i = 0; i < PolyglotKeys.KEY_COUNT; ++i) {
+            buffer.putLong(i + 1);
+        }
+        PolyglotKeys read = PolyglotKeys.read(new ByteArrayInputStream(buffer.array()));
+        // Only white to move, key 781, is hashed for an empty board without castling rights
+        ChessBoard empty = new ChessBoard();
+        empty.setCastlingRights(0);
+        Assertions.assertEquals(PolyglotKeys.KEY_COUNT, read.hash(empty, ChessGame.TeamColor.WHITE));
+        Assertions.assertThrows(IOException.class,
+                () -> PolyglotKeys.read(new ByteArrayInputStream(new byte[Long.BYTES * 10])));
+    }
+
+    @Test
+    public void standardKeysMatchPublishedHashes() throws IOException, InvalidMoveException {
+        PolyglotKeys standard = PolyglotKeys.standard();
+
+        // The reference keys from Polyglot's book format description
+        ChessGame game = ChessGame.fromFen(Perft.START_POSITION);
+        Assertions.assertEquals(0x463b96181691fc9cL, standard.hash(game));
+        game.makeMove(move("e2", "e4"));
+        Assertions.assertEquals(0x823c9b50fd114196L, standard.hash(game));
+        game.makeMove(move("d7", "d5"));
+        Assertions.assertEquals(0x0756b94461c50fb0L, standard.hash(game));
+        game.makeMove(move("e4", "e5"));
+        Assertions.assertEquals(0x662fafb965db29d4L, standard.hash(game));
+        // f5 can be taken en passant
+        game.makeMove(move("f7", "f5"));
+        Assertions.assertEquals(0x22a48b5a8e47ff78L, standard.hash(game));
+        // White loses both castling rights
+        game.makeMove(move("e1", "e2"));
+        Assertions.assertEquals(0x652a607ca3f242c1L, standard.hash(game));
+        game.makeMove(move("e8", "f7"));
+        Assertions.assertEquals(0x00fdd303c946bdd9L, standard.hash(game));
+
+        game = ChessGame.fromFen(Perft.START_POSITION);
+        for (String[] step : new String[][]{{"a2", "a4"}, {"b7", "b5"}, {"h2", "h4"}, {"b5", "b4"}, {"c2", "c4"}}) {
+            game.makeMove(move(step[0], step[1]));
+        }
+        Assertions.assertEquals(0x3c8123ea7b067637L, standard.hash(game));
+        game.makeMove(move("b4", "c3"));
+        game.makeMove(move("a1", "a3"));
+        Assertions.assertEquals(0x5c3f9b829b279560L, standard.hash(game));
+    }
+
+    @Test
+    public void rejectsTruncatedBook() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[20]);
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(file, keys));
+    }
+}
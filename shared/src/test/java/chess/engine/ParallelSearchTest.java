@@ -0,0 +1,93 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.move;
+
+public class ParallelSearchTest {
+
+    @Test
+    public void findsMateInTwo() {
+        ChessGame game = ChessGame.fromFen("kbK5/pp6/1P6/8/8/8/8/R7 w - - 0 1");
+        try (ParallelSearch search = new ParallelSearch(4)) {
+            SearchResult result = search.search(game, SearchLimits.depth(6));
+            Assertions.assertEquals(move("a1", "a6"), result.bestMove());
+            Assertions.assertEquals(2, result.mateInMoves());
+        }
+    }
+
+    @Test
+    public void capturesHangingQueen() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        try (ParallelSearch search = new ParallelSearch(3)) {
+            SearchResult result = search.search(game, SearchLimits.depth(4));
+            Assertions.assertEquals(move("d2", "d5"), result.bestMove());
+        }
+    }
+
+    @Test
+    public void oneThreadMatchesSearch() {
+        ChessGame game = ChessGame.fromFen(Perft.START_POSITION);
+        try (ParallelSearch search = new ParallelSearch(1)) {
+            SearchResult parallel = search.search(game, SearchLimits.depth(4));
+            SearchResult single = new Search().search(game, SearchLimits.depth(4));
+            Assertions.assertEquals(single.bestMove(), parallel.bestMove());
+            Assertions.assertEquals(single.score(), parallel.score());
+            Assertions.assertEquals(single.nodes(), parallel.nodes());
+            Assertions.assertEquals(single.tableStatistics(), parallel.tableStatistics());
+        }
+    }
+
+    @Test
+    public void respectsTimeBudgetAndCanBeReused() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        try (ParallelSearch search = new ParallelSearch(4)) {
+            for (int i = 0; i < 2; ++i) {
+                SearchResult result = search.search(game, SearchLimits.time(200));
+                Assertions.assertNotNull(result.bestMove());
+                Assertions.assertTrue(result.millis() < 1000);
+            }
+        }
+        Assertions.assertEquals(ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                game);
+    }
+
+    @Test
+    public void stopBeforeStartIsKept() {
+        try (ParallelSearch search = new ParallelSearch(3)) {
+            search.stop();
+            SearchResult stopped = search.search(new ChessGame(), SearchLimits.time(60_000));
+            Assertions.assertTrue(stopped.millis() < 5000);
+            // The stop only applies to the one search
+            Assertions.assertEquals(2, search.search(new ChessGame(), SearchLimits.depth(2)).depth());
+        }
+    }
+
+    @Test
+    public void stopsFromAnotherThread() throws InterruptedException {
+        ChessGame game = ChessGame.fromFen(Perft.START_POSITION);
+        try (ParallelSearch search = new ParallelSearch(2)) {
+            Thread stopper = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                search.stop();
+            });
+            stopper.start();
+            SearchResult result = search.search(game, SearchLimits.time(60_000));
+            stopper.join();
+            Assertions.assertNotNull(result.bestMove());
+            Assertions.assertTrue(result.millis() < 10_000);
+        }
+    }
+
+    @Test
+    public void needsAThread() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(0));
+    }
+}
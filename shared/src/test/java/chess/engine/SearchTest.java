@@ -0,0 +1,71 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static passoff.chess.TestUtilities.move;
+
+public class SearchTest {
+
+    @Test
+    public void findsMateInOne() {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = new Search().search(game, SearchLimits.depth(4));
+        Assertions.assertEquals(move("a1", "a8"), result.bestMove());
+        Assertions.assertEquals(1, result.mateInMoves());
+    }
+
+    @Test
+    public void findsMateInTwo() {
+        ChessGame game = ChessGame.fromFen("kbK5/pp6/1P6/8/8/8/8/R7 w - - 0 1");
+        SearchResult result = new Search().search(game, SearchLimits.depth(6));
+        Assertions.assertEquals(move("a1", "a6"), result.bestMove());
+        Assertions.assertEquals(2, result.mateInMoves());
+        Assertions.assertEquals(3, result.principalVariation().size());
+    }
+
+    @Test
+    public void capturesHangingQueen() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = new Search().search(game, SearchLimits.depth(3));
+        Assertions.assertEquals(move("d2", "d5"), result.bestMove());
+        Assertions.assertTrue(result.score() > 300);
+    }
+
+    @Test
+    public void stopBeforeStartIsKept() {
+        Search search = new Search();
+        search.stop();
+        SearchResult stopped = search.search(new ChessGame(), SearchLimits.time(60_000));
+        Assertions.assertTrue(stopped.millis() < 5000);
+        // The stop only applies to the one search
+        Assertions.assertEquals(2, search.search(new ChessGame(), SearchLimits.depth(2)).depth());
+    }
+
+    @Test
+    public void noMoveWhenStalemated() {
+        ChessGame game = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        SearchResult result = new Search().search(game, SearchLimits.depth(3));
+        Assertions.assertNull(result.bestMove());
+        Assertions.assertEquals(0, result.score());
+    }
+
+    @Test
+    public void respectsNodeBudget() {
+        ChessGame game = ChessGame.fromFen(Perft.START_POSITION);
+        SearchResult result = new Search().search(game, SearchLimits.nodes(5000));
+        Assertions.assertNotNull(result.bestMove());
+        Assertions.assertTrue(result.nodes() <= 5000);
+        Assertions.assertEquals(ChessGame.fromFen(Perft.START_POSITION), game);
+    }
+
+    @Test
+    public void respectsTimeBudget() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult result = new Search().search(game, SearchLimits.time(200));
+        Assertions.assertNotNull(result.bestMove());
+        Assertions.assertTrue(result.millis() < 1000);
+    }
+}
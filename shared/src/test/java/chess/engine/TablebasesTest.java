@@ -0,0 +1,115 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TablebasesTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        Tablebases.generate(directory, 2);
+        tablebases = Tablebases.open(directory);
+    }
+
+    private static int probe(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        return tablebases.probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    private static int longestMate(String file) throws IOException {
+        byte[] table = Files.readAllBytes(directory.resolve(file));
+        int longest = 0;
+        for (byte result : table) {
+            if (result > 0) {
+                longest = Math.max(longest, Tablebases.matePlies(result));
+            }
+        }
+        return longest;
+    }
+
+    @Test
+    public void longestMatesMatchTheory() throws IOException {
+        // 10 moves with a queen, 16 with a rook, and 28 with a pawn
+        Assertions.assertEquals(19, longestMate("KQK.tb"));
+        Assertions.assertEquals(31, longestMate("KRK.tb"));
+        Assertions.assertEquals(55, longestMate("KPK.tb"));
+    }
+
+    @Test
+    public void findsMates() {
+        Assertions.assertEquals(-1, probe("6Qk/5K2/8/8/8/8/8/8 b - - 0 1"));
+        Assertions.assertEquals(2, probe("7k/5K2/8/8/8/8/8/6Q1 w - - 0 1"));
+        Assertions.assertEquals(-3, probe("k7/8/1K6/8/8/8/8/7R b - - 0 1"));
+    }
+
+    @Test
+    public void colorsAreInterchangeable() {
+        int whitePawn = probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(whitePawn < 0);
+        Assertions.assertEquals(whitePawn, probe("8/8/8/8/4p3/4k3/8/4K3 w - - 0 1"));
+        Assertions.assertEquals(probe("7k/8/8/8/8/8/8/R3K3 w - - 0 1"), probe("r3k3/8/8/8/8/8/8/7K b - - 0 1"));
+    }
+
+    @Test
+    public void findsDraws() {
+        // The rook is lost, the pawn is lost, and the defending king holds the rook pawn
+        Assertions.assertEquals(0, probe("8/8/8/8/8/8/6k1/4K2R b - - 0 1"));
+        Assertions.assertEquals(0, probe("8/8/8/8/8/8/6kP/K7 b - - 0 1"));
+        Assertions.assertEquals(0, probe("k7/8/K7/P7/8/8/8/8 w - - 0 1"));
+        Assertions.assertEquals(0, probe("4k3/8/8/8/8/8/8/2B1K3 w - - 0 1"));
+        Assertions.assertEquals(0, probe("4k3/8/8/8/8/8/8/4K3 w - - 0 1"));
+    }
+
+    @Test
+    public void promotionsUseOtherTables() {
+        int result = probe("K7/1P6/8/8/8/8/8/7k w - - 0 1");
+        Assertions.assertTrue(result > 0);
+        // Promoting leaves a queen mate of at most 10 moves
+        Assertions.assertTrue(Tablebases.matePlies(result) <= 20);
+    }
+
+    @Test
+    public void uncoveredPositionsAreUnknown() throws IOException {
+        Assertions.assertEquals(Tablebases.UNKNOWN, probe("4k3/8/8/8/8/8/3PP3/4K3 w - - 0 1"));
+        // Castling is not in the tables
+        Assertions.assertEquals(Tablebases.UNKNOWN, probe("4k3/8/8/8/8/8/8/4K2R w K - 0 1"));
+        Assertions.assertNotEquals(Tablebases.UNKNOWN, probe("4k3/8/8/8/8/8/8/4K2R w - - 0 1"));
+
+        Tablebases none = Tablebases.open(directory.resolve("missing"));
+        ChessGame game = ChessGame.fromFen("7k/5K2/8/8/8/8/8/6Q1 w - - 0 1");
+        Assertions.assertEquals(Tablebases.UNKNOWN, none.probe(game.getBoard(), game.getTeamTurn()));
+    }
+
+    @Test
+    public void adjudicatesGames() {
+        Assertions.assertEquals(Tablebases.Outcome.WHITE_WINS,
+                tablebases.adjudicate(ChessGame.fromFen("7k/8/8/8/8/8/8/R3K3 b - - 0 1")));
+        Assertions.assertEquals(Tablebases.Outcome.BLACK_WINS,
+                tablebases.adjudicate(ChessGame.fromFen("8/8/8/8/4p3/4k3/8/4K3 w - - 0 1")));
+        Assertions.assertEquals(Tablebases.Outcome.DRAW,
+                tablebases.adjudicate(ChessGame.fromFen("8/8/8/8/8/8/6kP/K7 b - - 0 1")));
+        Assertions.assertNull(tablebases.adjudicate(ChessGame.fromFen("4k3/8/8/8/8/8/3PP3/4K3 w - - 0 1")));
+    }
+
+    @Test
+    public void searchPlaysPerfectly() {
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        int result = tablebases.probe(game.getBoard(), game.getTeamTurn());
+        Search search = new Search();
+        search.setTablebases(tablebases);
+        SearchResult found = search.search(game, SearchLimits.depth(2));
+        Assertions.assertEquals(Search.MATE - Tablebases.matePlies(result), found.score());
+    }
+}
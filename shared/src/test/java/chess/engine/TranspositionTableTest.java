@@ -0,0 +1,97 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storedEntryIsFound() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEFL;
+        table.store(key, 0x1234, -250, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(key);
+        Assertions.assertNotEquals(TranspositionTable.NO_ENTRY, entry);
+        Assertions.assertEquals(0x1234, TranspositionTable.move(entry));
+        Assertions.assertEquals(-250, TranspositionTable.score(entry));
+        Assertions.assertEquals(7, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+    }
+
+    @Test
+    public void otherKeyInSameBucketIsMissed() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x42L;
+        table.store(key, 0x0101, 10, 3, TranspositionTable.EXACT);
+
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, table.probe(key ^ (1L << 63)));
+    }
+
+    @Test
+    public void restoringKeepsBestMove() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x77L;
+        table.store(key, 0x0A0B, 15, 2, TranspositionTable.EXACT);
+        Assertions.assertFalse(table.store(key, 0, -40, 5, TranspositionTable.UPPER));
+
+        long entry = table.probe(key);
+        Assertions.assertEquals(0x0A0B, TranspositionTable.move(entry));
+        Assertions.assertEquals(-40, TranspositionTable.score(entry));
+        Assertions.assertEquals(5, TranspositionTable.depth(entry));
+    }
+
+    @Test
+    public void shallowestEntryIsReplaced() {
+        TranspositionTable table = new TranspositionTable(1);
+        // Keys that differ only in their high bits share a bucket
+        for (int i = 0; i < 4; ++i) {
+            Assertions.assertFalse(table.store(((long) (i + 1) << 40) | 5, 0, 0, 10 + i, TranspositionTable.EXACT));
+        }
+        Assertions.assertTrue(table.store(5L << 40 | 5, 0, 0, 1, TranspositionTable.EXACT));
+
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, table.probe(1L << 40 | 5));
+        Assertions.assertNotEquals(TranspositionTable.NO_ENTRY, table.probe(4L << 40 | 5));
+        Assertions.assertNotEquals(TranspositionTable.NO_ENTRY, table.probe(5L << 40 | 5));
+    }
+
+    @Test
+    public void oldEntriesAreReplacedFirst() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(1L << 40 | 9, 0, 0, 6, TranspositionTable.EXACT);
+        table.newSearch();
+        for (int i = 1; i < 4; ++i) {
+            table.store(((long) (i + 1) << 40) | 9, 0, 0, 4, TranspositionTable.EXACT);
+        }
+        table.store(5L << 40 | 9, 0, 0, 4, TranspositionTable.EXACT);
+
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, table.probe(1L << 40 | 9));
+    }
+
+    @Test
+    public void clearEmptiesTable() {
+        TranspositionTable table = new TranspositionTable(2);
+        Assertions.assertEquals(2, table.megabytes());
+        table.store(3, 0, 0, 1, TranspositionTable.EXACT);
+        table.clear();
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, table.probe(3));
+    }
+
+    @Test
+    public void sharedTableSpeedsUpRepeatedSearch() {
+        ChessGame game = ChessGame.fromFen(Perft.START_POSITION);
+        TranspositionTable table = new TranspositionTable(1);
+        SearchResult first = new Search(table).search(game, SearchLimits.depth(5));
+        Assertions.assertTrue(table.hashfull() > 0);
+        SearchResult second = new Search(table).search(game, SearchLimits.depth(5));
+
+        Assertions.assertNotNull(second.bestMove());
+        Assertions.assertTrue(second.nodes() < first.nodes());
+        SearchResult.TableStatistics statistics = second.tableStatistics();
+        Assertions.assertTrue(statistics.hits() > 0);
+        Assertions.assertTrue(statistics.hits() <= statistics.probes());
+        Assertions.assertTrue(statistics.hitRate() > first.tableStatistics().hitRate());
+    }
+}
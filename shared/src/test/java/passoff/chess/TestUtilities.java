@@ -77,4 +77,17 @@ public class TestUtilities {
         Assertions.assertEquals(validMoves, actualMoves,
                 "ChessGame validMoves did not return the correct moves");
     }
+
+    public static ChessPosition position(String square) {
+        // Algebraic notation, such as "e4"
+        return ChessPosition.of(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    public static ChessMove move(String start, String end) {
+        return move(start, end, null);
+    }
+
+    public static ChessMove move(String start, String end, ChessPiece.PieceType promotion) {
+        return new ChessMove(position(start), position(end), promotion);
+    }
 }